@@ -41,6 +41,8 @@ import com.researchspace.model.permissions.ConstraintPermissionResolver;
 @XmlAccessorType(XmlAccessType.NONE)
 public abstract class AbstractUserOrGroupImpl implements UserOrGroup, UniquelyIdentifiable, Permissable {
 
+	private static final PermissionResolver permissionResolver = new ConstraintPermissionResolver();
+
 	private Long id;
 
 	private PermissionHandler permHandler;
@@ -143,6 +145,13 @@ public abstract class AbstractUserOrGroupImpl implements UserOrGroup, UniquelyId
 		permHandler.setPermissionStrings(permissionStrings);
 	}
 
+	/*
+	 * Changes whenever this user or group's permissions change
+	 */
+	int permissionsVersion() {
+		return permHandler.getVersion();
+	}
+
 	/**
 	 * Public API to add a {@link Permission} to this user or group.
 	 * 
@@ -166,8 +175,7 @@ public abstract class AbstractUserOrGroupImpl implements UserOrGroup, UniquelyId
 	}
 
 	public void addPermission(String permission) {
-		PermissionResolver pr = new ConstraintPermissionResolver();
-		addPermission((ConstraintBasedPermission) pr.resolvePermission(permission));
+		addPermission((ConstraintBasedPermission) permissionResolver.resolvePermission(permission));
 	}
 
 	/**
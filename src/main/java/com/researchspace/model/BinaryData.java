@@ -0,0 +1,80 @@
+package com.researchspace.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Read-only views of, and stream input for, the binary data held by entities such as {@link ImageBlob},
+ * so that the data can be read without copying it.
+ */
+final class BinaryData {
+
+	private static final int BUFFER_SIZE = 8192;
+	// some VMs can't allocate arrays right up to Integer.MAX_VALUE
+	private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+	private BinaryData() {
+	}
+
+	/**
+	 * @return a read-only buffer backed by <code>data</code>, or <code>null</code> if data is null
+	 */
+	static ByteBuffer readOnlyBuffer(byte[] data) {
+		return data == null ? null : ByteBuffer.wrap(data).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return a stream reading <code>data</code>, or <code>null</code> if data is null
+	 */
+	static InputStream inputStream(byte[] data) {
+		return data == null ? null : new ByteArrayInputStream(data);
+	}
+
+	static int length(byte[] data) {
+		return data == null ? 0 : data.length;
+	}
+
+	/**
+	 * Reads a stream to its end; the stream is not closed.
+	 * <p>
+	 * The data is read straight into an array sized by {@link InputStream#available()}, so streams that
+	 * report their remaining length, e.g. file and byte array streams, are read without any copying or
+	 * spare capacity. Otherwise the array is grown as data arrives, copying the data read so far each
+	 * time, and trimmed at the end, so up to about twice the data's size may be needed while reading.
+	 *
+	 * @return the data read, or <code>null</code> if <code>in</code> is null
+	 */
+	static byte[] readFully(InputStream in) throws IOException {
+		if (in == null) {
+			return null;
+		}
+		byte[] data = new byte[Math.max(in.available(), 0)];
+		int size = 0;
+		while (true) {
+			if (size == data.length) {
+				int next = in.read();
+				if (next == -1) {
+					return data;
+				}
+				data = Arrays.copyOf(data, grow(data.length));
+				data[size++] = (byte) next;
+			}
+			int read = in.read(data, size, data.length - size);
+			if (read == -1) {
+				return Arrays.copyOf(data, size);
+			}
+			size += read;
+		}
+	}
+
+	private static int grow(int length) throws IOException {
+		if (length >= MAX_ARRAY_LENGTH) {
+			throw new IOException("Data is too large to be held in an array");
+		}
+		return (int) Math.min(MAX_ARRAY_LENGTH, Math.max(BUFFER_SIZE, 2L * length));
+	}
+
+}
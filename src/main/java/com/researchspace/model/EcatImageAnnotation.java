@@ -1,6 +1,9 @@
 package com.researchspace.model;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -136,6 +139,30 @@ public class EcatImageAnnotation implements Serializable, IFieldLinkableElement
 		this.data = data == null ? null : data;
 	}
 
+	/**
+	 * Sets the annotated image data from a stream, read to its end; the stream is not closed.
+	 * 
+	 * @param in
+	 * @throws IOException
+	 */
+	public void setDataFromStream(InputStream in) throws IOException {
+		setData(BinaryData.readFully(in));
+	}
+
+	/**
+	 * @return a stream reading the annotated image data, or <code>null</code> if there is none
+	 */
+	public InputStream openDataStream() {
+		return BinaryData.inputStream(data);
+	}
+
+	/**
+	 * @return a read-only buffer of the annotated image data, or <code>null</code> if there is none
+	 */
+	public ByteBuffer dataBuffer() {
+		return BinaryData.readOnlyBuffer(data);
+	}
+
 	@Override
 	public String toString() {
 		return "EcatImageAnnotation [id=" + id + ", imageId=" + imageId + ", fieldId=" + fieldId + "]";
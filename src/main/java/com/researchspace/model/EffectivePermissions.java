@@ -0,0 +1,95 @@
+package com.researchspace.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+
+import org.apache.shiro.authz.Permission;
+
+import com.researchspace.model.permissions.ConstraintBasedPermission;
+
+/*
+ * Snapshot of the permissions a user has directly, through their roles and, optionally, through
+ * their groups, for repeated permission checks by User.isPermitted.
+ *
+ * The snapshot holds the permission objects themselves, so changes to them, e.g. enabling or
+ * disabling, are seen. It is out of date once the user's roles or groups, whether group
+ * permissions are included, or any of the contributing permission sets change; this is detected
+ * by comparing a fingerprint of all these, which is much cheaper than collecting the permissions.
+ */
+final class EffectivePermissions {
+
+	private final boolean inherit;
+	private final int[] fingerprint;
+	private final ConstraintBasedPermission[] permissions;
+
+	EffectivePermissions(User user, boolean inherit) {
+		this.inherit = inherit;
+		// before collecting permissions, so any concurrent change makes this out of date
+		this.fingerprint = fingerprint(user, inherit);
+		// disabled permissions never imply anything, so are skipped when checking
+		Set<Permission> all = user.getAllPermissions(true, inherit);
+		this.permissions = all.stream().map(ConstraintBasedPermission.class::cast)
+				.sorted(Comparator.comparingInt(EffectivePermissions::cost))
+				.toArray(ConstraintBasedPermission[]::new);
+	}
+
+	boolean isCurrentFor(User user) {
+		return Arrays.equals(fingerprint, fingerprint(user, inherit));
+	}
+
+	boolean isPermitted(User user, Permission p) {
+		for (ConstraintBasedPermission cbp : permissions) {
+			if (cbp.isEnabled()) {
+				cbp.setUser(user);
+				if (cbp.implies(p)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static int[] fingerprint(User user, boolean inherit) {
+		Set<Role> roles = user.getRoles();
+		Set<UserGroup> userGroups = user.getUserGroups();
+		int[] rc = new int[1 + 2 * roles.size() + (inherit ? 4 * userGroups.size() : 0)];
+		int i = 0;
+		rc[i++] = user.permissionsVersion();
+		for (Role role : roles) {
+			rc[i++] = System.identityHashCode(role);
+			rc[i++] = role.permissionsVersion();
+		}
+		if (inherit) {
+			for (UserGroup ug : userGroups) {
+				Group group = ug.getGroup();
+				rc[i++] = System.identityHashCode(ug);
+				rc[i++] = ug.isIncludePermissions() ? 1 : 0;
+				rc[i++] = ug.permissionsVersion();
+				rc[i++] = group == null ? 0 : group.permissionsVersion();
+			}
+		}
+		return rc;
+	}
+
+	/*
+	 * Rough relative cost of checking a permission, so that permissions with no or cheap
+	 * constraints, which are also the most widely matching, are checked first.
+	 */
+	private static int cost(ConstraintBasedPermission cbp) {
+		int cost = 0;
+		if (cbp.getIdConstraint() != null) {
+			cost++;
+		}
+		if (cbp.getGroupConstraint() != null) {
+			cost++;
+		}
+		if (cbp.getCommunityConstraint() != null) {
+			cost++;
+		}
+		cost += 2 * cbp.getPropertyConstraints().size();
+		cost += 4 * cbp.getLocationConstraints().size();
+		return cost;
+	}
+
+}
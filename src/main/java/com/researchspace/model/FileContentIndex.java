@@ -0,0 +1,234 @@
+package com.researchspace.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Content-addressed index of stored files, so that files uploaded many times with the same contents
+ * can share one file in the file store.
+ * <p>
+ * Files are identified by their {@link FileProperty#getContentsHash()}, size and {@link FileStoreRoot}.
+ * The first file registered for some contents is the shared entry for them. A new upload is handled
+ * in two steps: {@link #resolveUpload(FileProperty)} looks for a shared entry with the same contents
+ * and points the upload at its relative path; only if there is none are the contents stored. Once
+ * stored and saved, the upload is added to the index with {@link #register(FileProperty)}. So a failed
+ * store never leaves an entry pointing at a file that wasn't written.
+ * <p>
+ * The index counts the saved FileProperties referencing each shared entry, by ID, so registering a
+ * file again, e.g. while rebuilding the index, doesn't add another reference. {@link #release(FileProperty)}
+ * tells when the last of them is released, and the stored file can be removed. Callers must make sure
+ * that no upload is resolved to a stored file while it's being removed.
+ * <p>
+ * Files without a contents hash, and externally stored files, are never shared. The index is held in
+ * memory and is thread-safe; it can be rebuilt from persisted FileProperties with
+ * {@link #register(FileProperty)}. It only knows about files registered since it was created, so
+ * {@link #release(FileProperty)} never reports a file it doesn't know as unused.
+ */
+public class FileContentIndex {
+
+	/**
+	 * Opens the stored contents of a file, for {@link FileContentIndex#verify(ContentOpener)}.
+	 */
+	@FunctionalInterface
+	public interface ContentOpener {
+		InputStream open(FileProperty file) throws IOException;
+	}
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final String hashAlgorithm;
+	private final Map<String, SharedEntry> entries = new ConcurrentHashMap<>();
+
+	private static class SharedEntry {
+		private final FileProperty file;
+		// IDs of the saved files referencing the entry
+		private final Set<Long> references = ConcurrentHashMap.newKeySet();
+
+		SharedEntry(FileProperty file) {
+			this.file = file;
+		}
+	}
+
+	/**
+	 * Index of files whose contents hashes are SHA-256 hashes.
+	 */
+	public FileContentIndex() {
+		this("SHA-256");
+	}
+
+	/**
+	 * @param hashAlgorithm a {@link MessageDigest} algorithm, used to calculate contents hashes, as
+	 *                      lower or upper case hex strings
+	 * @throws IllegalArgumentException if the algorithm isn't available
+	 */
+	public FileContentIndex(String hashAlgorithm) {
+		Validate.notNull(hashAlgorithm, "hashAlgorithm can't be null");
+		newDigest(hashAlgorithm);
+		this.hashAlgorithm = hashAlgorithm;
+	}
+
+	/**
+	 * Adds a stored and saved file to the index. The first file registered for some contents becomes
+	 * their shared entry; a file stored at the same relative path as the shared entry adds a reference
+	 * to it. Registering the same file again has no effect.
+	 *
+	 * @param stored a saved file, whose contents are stored at its relative path
+	 * @return <code>true</code> if the file is, or references, the shared entry for its contents;
+	 *         <code>false</code> if it can't be shared, or is a separately stored copy of the contents.
+	 * @throws IllegalArgumentException if the file isn't saved
+	 */
+	public boolean register(FileProperty stored) {
+		String key = getKey(stored);
+		if (key == null) {
+			return false;
+		}
+		Validate.notNull(stored.getId(), "file must be saved before it's registered");
+		boolean[] shared = new boolean[1];
+		entries.compute(key, (k, entry) -> {
+			if (entry == null) {
+				entry = new SharedEntry(stored);
+			}
+			if (StringUtils.equals(entry.file.getRelPath(), stored.getRelPath())) {
+				entry.references.add(stored.getId());
+				shared[0] = true;
+			}
+			return entry;
+		});
+		return shared[0];
+	}
+
+	/**
+	 * Looks up the shared entry for the contents of a new upload, setting the upload's relative path to
+	 * that of the shared entry if there is one. This doesn't add the upload to the index; it should be
+	 * registered with {@link #register(FileProperty)} once its contents are stored, if need be, and it's
+	 * saved.
+	 *
+	 * @param upload a file with its contents hash, size and root set
+	 * @return <code>true</code> if the contents are already stored, so don't need storing again
+	 */
+	public boolean resolveUpload(FileProperty upload) {
+		String key = getKey(upload);
+		SharedEntry entry = key == null ? null : entries.get(key);
+		if (entry == null) {
+			return false;
+		}
+		upload.setRelPath(entry.file.getRelPath());
+		return true;
+	}
+
+	/**
+	 * Removes a file's reference to the shared entry of its contents, e.g. when the file is deleted.
+	 *
+	 * @param file
+	 * @return <code>true</code> if the file was the last registered file referencing the shared entry, so
+	 *         the stored file can be removed from the file store; <code>false</code> if other files
+	 *         reference it, or if the index doesn't know the file, e.g. a file that was never
+	 *         registered, a separately stored copy, or a file that can't be shared, when the stored file
+	 *         must be kept.
+	 */
+	public boolean release(FileProperty file) {
+		String key = getKey(file);
+		if (key == null || file.getId() == null) {
+			return false;
+		}
+		boolean[] unused = new boolean[1];
+		entries.computeIfPresent(key, (k, entry) -> {
+			if (!StringUtils.equals(entry.file.getRelPath(), file.getRelPath())
+					|| !entry.references.remove(file.getId())) {
+				return entry;
+			}
+			unused[0] = entry.references.isEmpty();
+			return unused[0] ? null : entry;
+		});
+		return unused[0];
+	}
+
+	/**
+	 * @return the number of files referencing the shared entry for this file's contents, 0 if there is
+	 *         none
+	 */
+	public int getReferenceCount(FileProperty file) {
+		String key = getKey(file);
+		SharedEntry entry = key == null ? null : entries.get(key);
+		return entry == null ? 0 : entry.references.size();
+	}
+
+	/**
+	 * @return the number of distinct stored contents in the index
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Checks the stored contents of every shared entry against its contents hash. Contents are streamed
+	 * and hashed as they are read, so files of any size can be checked.
+	 *
+	 * @param opener opens the stored contents of a file; streams are closed after reading
+	 * @return the shared files whose contents don't match their hash, or that couldn't be read
+	 */
+	public List<FileProperty> verify(ContentOpener opener) {
+		List<FileProperty> failed = new ArrayList<>();
+		for (SharedEntry entry : entries.values()) {
+			if (!hasExpectedContents(entry.file, opener)) {
+				failed.add(entry.file);
+			}
+		}
+		return failed;
+	}
+
+	private boolean hasExpectedContents(FileProperty file, ContentOpener opener) {
+		MessageDigest digest = newDigest(hashAlgorithm);
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream in = opener.open(file)) {
+			if (in == null) {
+				return false;
+			}
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		} catch (IOException e) {
+			return false;
+		}
+		return toHex(digest.digest()).equalsIgnoreCase(file.getContentsHash());
+	}
+
+	private String getKey(FileProperty file) {
+		if (file == null || file.isExternal() || StringUtils.isBlank(file.getContentsHash())) {
+			return null;
+		}
+		String root = file.getRoot() == null ? "" : file.getRoot().getFileStoreRoot();
+		return root + '\0' + file.getContentsHash().toLowerCase(Locale.ROOT) + '\0' + file.getFileSize();
+	}
+
+	private static MessageDigest newDigest(String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException("Unknown hash algorithm " + algorithm, e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+		}
+		return new String(hex);
+	}
+
+}
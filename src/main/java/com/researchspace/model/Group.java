@@ -75,6 +75,11 @@ public class Group extends AbstractUserOrGroupImpl implements Comparable<Group>,
 	private String profileText;
 	private boolean groupFolderCreated;
 	private Set<UserGroup> userGroups = new HashSet<>();
+	// transient index of userGroups by username, and sorted members; see getMemberIndex
+	private transient Map<String, UserGroup> memberIndex;
+	private transient Set<UserGroup> indexedUserGroups;
+	private transient int indexedSize;
+	private transient Set<User> members;
 	private List<String> memberString = new ArrayList<>();
 	private Long communityId = Community.DEFAULT_COMMUNITY_ID;
 	private Set<Community> communities = new HashSet<>();
@@ -277,10 +282,8 @@ public class Group extends AbstractUserOrGroupImpl implements Comparable<Group>,
 		/*
 		 * Don't add a user twice to a group
 		 */
-		for (UserGroup ug : userGroups) {
-			if (ug.getUser().equals(member)) {
-				return false;
-			}
+		if (getUserGroupForUser(member) != null) {
+			return false;
 		}
 		if (RoleInGroup.PI.equals(role) && !member.hasRole(Role.PI_ROLE)) {
 			throw new IllegalArgumentException("Attempting to add a non-PI user to a PI role in the group");
@@ -298,6 +301,8 @@ public class Group extends AbstractUserOrGroupImpl implements Comparable<Group>,
 		boolean added = userGroups.add(ug);
 		if (added) {
 			member.getUserGroups().add(ug);
+			member.invalidatePermissionCache();
+			memberAdded(ug);
 		}
 
 		return added;
@@ -307,9 +312,69 @@ public class Group extends AbstractUserOrGroupImpl implements Comparable<Group>,
 		return addMember(member, role, Collections.emptySet());
 	}
 
+	/**
+	 * Gets the membership of a user in this group.
+	 *
+	 * @param user
+	 * @return the {@link UserGroup}, or <code>null</code> if the user is not a
+	 * member of this group.
+	 */
 	@Transient
 	public UserGroup getUserGroupForUser(User user) {
-		return findUserGroup(ug -> ug.getUser().equals(user));
+		if (user == null) {
+			return null;
+		}
+		String username = user.getUsername();
+		if (username == null) {
+			return findUserGroup(ug -> ug.getUser().equals(user));
+		}
+		UserGroup ug = getMemberIndex().get(username);
+		if (ug != null && !isMembershipOf(ug, username)) {
+			// changed since indexed
+			resetMemberIndex();
+			ug = getMemberIndex().get(username);
+		}
+		return ug;
+	}
+
+	/*
+	 * Index of user-groups by username, rebuilt if userGroups was replaced or
+	 * changed size other than through addMember/removeMember. Usernames are
+	 * immutable.
+	 */
+	private Map<String, UserGroup> getMemberIndex() {
+		if (memberIndex == null || indexedUserGroups != userGroups || indexedSize != userGroups.size()) {
+			Map<String, UserGroup> index = new HashMap<>();
+			for (UserGroup ug : userGroups) {
+				if (ug.getUser() != null) {
+					index.putIfAbsent(ug.getUser().getUsername(), ug);
+				}
+			}
+			memberIndex = index;
+			indexedUserGroups = userGroups;
+			indexedSize = userGroups.size();
+			members = null;
+		}
+		return memberIndex;
+	}
+
+	private boolean isMembershipOf(UserGroup ug, String username) {
+		return ug.getUser() != null && username.equals(ug.getUser().getUsername());
+	}
+
+	private void memberAdded(UserGroup ug) {
+		if (memberIndex != null && indexedUserGroups == userGroups && indexedSize == userGroups.size() - 1) {
+			memberIndex.putIfAbsent(ug.getUser().getUsername(), ug);
+			indexedSize++;
+			members = null;
+		} else {
+			resetMemberIndex();
+		}
+	}
+
+	private void resetMemberIndex() {
+		memberIndex = null;
+		members = null;
 	}
 
 	private UserGroup findUserGroup(Predicate<? super UserGroup> filter) {
@@ -317,28 +382,17 @@ public class Group extends AbstractUserOrGroupImpl implements Comparable<Group>,
 	}
 
 	public boolean hasMember(UserOrGroup subject) {
-		if (subject.isUser()) {
-			for (UserGroup ug : userGroups) {
-				if (ug.getUser().equals(subject)) {
-					return true;
-				}
-			}
-		}
-		return false;
+		return subject.isUser() && getUserGroupForUser((User) subject) != null;
 	}
 
 	public boolean removeMember(User subject) {
 		boolean removed = false;
-		UserGroup toRemove = null;
-		for (UserGroup ug : userGroups) {
-			if (ug.getUser().equals(subject)) {
-				toRemove = ug;
-				break;
-			}
-		}
-		removed = userGroups.remove(toRemove);
+		UserGroup toRemove = getUserGroupForUser(subject);
+		removed = toRemove != null && userGroups.remove(toRemove);
 		if (removed) {
+			resetMemberIndex();
 			subject.getUserGroups().remove(toRemove);
+			subject.invalidatePermissionCache();
 			toRemove.setUser(null);
 			toRemove.setGroup(null);
 			toRemove.setPermissionStrings(Collections.emptySet());
@@ -437,18 +491,23 @@ public class Group extends AbstractUserOrGroupImpl implements Comparable<Group>,
 	}
 
 	/**
-	 * Gets all group members
+	 * Gets all group members, ordered by username. The returned set is
+	 * unmodifiable, and reused until membership changes.
 	 *
 	 * @return
 	 */
 	@Transient
 	@AuditTrailProperty(name = "members", properties = "username")
 	public Set<User> getMembers() {
-		Set<User> rc = new TreeSet<>();
-		for (UserGroup ug : userGroups) {
+		getMemberIndex();
+		if (members == null) {
+			Set<User> rc = new TreeSet<>();
+			for (UserGroup ug : userGroups) {
 				rc.add(ug.getUser());
+			}
+			members = Collections.unmodifiableSet(rc);
 		}
-		return Collections.unmodifiableSet(rc);
+		return members;
 	}
 
 	/**
@@ -595,8 +654,8 @@ public class Group extends AbstractUserOrGroupImpl implements Comparable<Group>,
 	 */
 	@Transient
 	public RoleInGroup getRoleForUser(User u) {
-		return getUserGroups().stream().filter(ug -> ug.getUser().equals(u)).map(ug -> ug.getRoleInGroup()).findFirst()
-				.orElse(null);
+		UserGroup ug = getUserGroupForUser(u);
+		return ug == null ? null : ug.getRoleInGroup();
 	}
 
 	@Override
@@ -610,6 +669,7 @@ public class Group extends AbstractUserOrGroupImpl implements Comparable<Group>,
 	 */
 	public void setUserGroups(Set<UserGroup> userGroups) {
 		this.userGroups = userGroups;
+		resetMemberIndex();
 	}
 
 	public boolean isGroupFolderCreated() {
@@ -1,12 +1,18 @@
 package com.researchspace.model;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
+import javax.persistence.Access;
+import javax.persistence.AccessType;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Lob;
+import javax.persistence.Transient;
 import javax.xml.bind.annotation.XmlElement;
 
 import lombok.AccessLevel;
@@ -16,6 +22,10 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Generic binary data blob object that can be cached.
+ * <p>
+ * {@link #getData()} and {@link #setData(byte[])} copy the data, so that callers can't change it; the
+ * data is persisted by field access, so Hibernate doesn't copy it when loading or dirty-checking
+ * blobs. To read the data without copying it, use {@link #openDataStream()} or {@link #dataBuffer()}.
  */
 @Entity
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
@@ -24,6 +34,8 @@ public class ImageBlob implements Serializable {
 
 	private static final long serialVersionUID = 8446877595238278739L;
 	private Long id;
+	@Lob
+	@Access(AccessType.FIELD)
 	private byte[] data;
 
 	/**
@@ -45,7 +57,7 @@ public class ImageBlob implements Serializable {
 		this.id = id;
 	}
 
-	@Lob
+	@Transient
 	@XmlElement
 	public byte[] getData() {
 		return data == null ? null : data.clone();
@@ -55,4 +67,36 @@ public class ImageBlob implements Serializable {
 		this.data = data == null ? null : data.clone();
 	}
 
+	/**
+	 * Sets the data from a stream, read to its end; the stream is not closed.
+	 * 
+	 * @param in
+	 * @throws IOException
+	 */
+	public void setDataFromStream(InputStream in) throws IOException {
+		this.data = BinaryData.readFully(in);
+	}
+
+	/**
+	 * @return a stream reading the data without copying it, or <code>null</code> if there is no data
+	 */
+	public InputStream openDataStream() {
+		return BinaryData.inputStream(data);
+	}
+
+	/**
+	 * @return a read-only buffer of the data, without copying it, or <code>null</code> if there is no
+	 *         data
+	 */
+	public ByteBuffer dataBuffer() {
+		return BinaryData.readOnlyBuffer(data);
+	}
+
+	/**
+	 * @return the length of the data in bytes, 0 if there is no data
+	 */
+	public int dataLength() {
+		return BinaryData.length(data);
+	}
+
 }
@@ -25,6 +25,8 @@ class PermissionHandler implements Serializable {
 	private static final ConstraintPermissionResolver permissionResolver = new ConstraintPermissionResolver();
 	private Set<String> permissionStrings = new HashSet<>();
 	private Set<Permission> permissions = new HashSet<>();
+	// incremented whenever the permissions change
+	private transient int version;
 
 	Set<String> getPermissionStrings() {
 		return permissionStrings;
@@ -34,7 +36,12 @@ class PermissionHandler implements Serializable {
 		return Collections.unmodifiableSet(permissions);
 	}
 
+	int getVersion() {
+		return version;
+	}
+
 	void setPermissionStrings(Set<String> permissionStrings) {
+		version++;
 		this.permissionStrings = permissionStrings;
 		if (permissionStrings == null) {
 			log.warn("set was null!");
@@ -66,6 +73,7 @@ class PermissionHandler implements Serializable {
 	public void addPermission(ConstraintBasedPermission p) {
 		boolean added = permissions.add(p);
 		if (added) {
+			version++;
 			permissionStrings.add(((ConstraintBasedPermission) p).getString());
 		}
 	}
@@ -76,13 +84,16 @@ class PermissionHandler implements Serializable {
 	 * @param p A {@link Permission} object
 	 */
 	public void removePermission(Permission p) {
-		permissions.remove(p);
+		if (permissions.remove(p)) {
+			version++;
+		}
 		if (p instanceof ConstraintBasedPermission) {
 			permissionStrings.remove(((ConstraintBasedPermission) p).getString());
 		}
 	}
 
 	public void clearAll() {
+		version++;
 		permissions.clear();
 		permissionStrings.clear();
 	}
@@ -1,6 +1,9 @@
 package com.researchspace.model;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Date;
 
 import javax.persistence.Column;
@@ -239,4 +242,28 @@ public class RSChemElement implements Serializable, IFieldLinkableElement {
 		return new GlobalIdentifier(GlobalIdPrefix.CH, getId());
 	}
 
+	/**
+	 * Sets the image data from a stream, read to its end; the stream is not closed.
+	 * 
+	 * @param in
+	 * @throws IOException
+	 */
+	public void setDataImageFromStream(InputStream in) throws IOException {
+		setDataImage(BinaryData.readFully(in));
+	}
+
+	/**
+	 * @return a stream reading the image data, or <code>null</code> if there is none
+	 */
+	public InputStream openDataImageStream() {
+		return BinaryData.inputStream(dataImage);
+	}
+
+	/**
+	 * @return a read-only buffer of the image data, or <code>null</code> if there is none
+	 */
+	public ByteBuffer dataImageBuffer() {
+		return BinaryData.readOnlyBuffer(dataImage);
+	}
+
 }
@@ -193,6 +193,13 @@ public class Role implements Serializable, Permissable {
 		permHandler.setPermissionStrings(permissionStrings);
 	}
 
+	/*
+	 * Changes whenever this role's permissions change
+	 */
+	int permissionsVersion() {
+		return permHandler.getVersion();
+	}
+
 	/**
 	 * Public API to add a {@link ConstraintBasedPermission} to this user-group.
 	 * 
@@ -1,8 +1,13 @@
 package com.researchspace.model;
 
 import java.io.Serializable;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -40,59 +45,192 @@ public class Thumbnail implements Serializable, IFieldLinkableElement {
 
 	private static final long serialVersionUID = -54338551053929180L;
 
-	static final Pattern FIELD_ID = Pattern.compile("sourceParentId=(\\d+)");
-	static final Pattern SRC_ID = Pattern.compile("sourceId=(\\d+)");
-	static final Pattern SRC_TYPE = Pattern.compile("sourceType=(\\w+)");
-	static final Pattern WIDTH = Pattern.compile("width=(\\d+)");
-	static final Pattern HEIGHT = Pattern.compile("height=(\\d+)");
-	// just get 1st digit if there is only 1 digit; else don't match
-	static final Pattern ROTATION = Pattern.compile("rotation=([0-3])(?![\\d])");
-	static final Pattern REV = Pattern.compile("revision=(\\d+)");
+	// keys of the URL parameters read by fromURL, indexed by the KEY_ constants
+	private static final String[] KEYS = { "sourceParentId", "sourceId", "sourceType", "width", "height",
+			"rotation", "revision" };
+	private static final int KEY_FIELD_ID = 0;
+	private static final int KEY_SRC_ID = 1;
+	private static final int KEY_SRC_TYPE = 2;
+	private static final int KEY_WIDTH = 3;
+	private static final int KEY_HEIGHT = 4;
+	private static final int KEY_ROTATION = 5;
+	private static final int KEY_REV = 6;
+
+	static final String THUMBNAIL_URL_PATH = "/thumbnail/data?";
 
 	/**
 	 * Converts a thumbnail URL to Thumnail object
+	 * <p>
+	 * Each value is read from the first occurrence of its key, e.g. "width=", that is followed by a
+	 * valid value, which is a number except for sourceType; a rotation must be a single digit 0-3.
+	 * The URL is scanned once, for all keys.
 	 * 
 	 * @param url
 	 * @return a transient thumbnail or <code>null</code> if source/parent ids
 	 *         could not be parsed.
 	 */
 	public static Thumbnail fromURL(String url) {
-		Thumbnail thum = new Thumbnail();
-		Matcher fieldMAtcher = FIELD_ID.matcher(url);
-		if (fieldMAtcher.find()) {
-			thum.setSourceParentId(Long.parseLong(fieldMAtcher.group(1)));
-		} else {
+		return fromURL(url, 0, url.length());
+	}
+
+	/**
+	 * Gets thumbnails from all the thumbnail URLs in some HTML, such as the content of a text field.
+	 * A URL starts with "/thumbnail/data?" and ends before the next quote, whitespace or angle
+	 * bracket; URLs from which no thumbnail can be parsed are skipped.
+	 * 
+	 * @param html
+	 * @return transient thumbnails, in order of their URLs in the HTML, parsed as the stream is
+	 *         consumed
+	 */
+	public static Stream<Thumbnail> fromHTML(String html) {
+		if (html == null || html.indexOf(THUMBNAIL_URL_PATH) == -1) {
+			return Stream.empty();
+		}
+		Iterator<Thumbnail> thumbnails = new Iterator<Thumbnail>() {
+			private int from = 0;
+			private Thumbnail next = advance();
+
+			private Thumbnail advance() {
+				int start;
+				while ((start = html.indexOf(THUMBNAIL_URL_PATH, from)) != -1) {
+					int end = start + THUMBNAIL_URL_PATH.length();
+					while (end < html.length() && !isURLEnd(html.charAt(end))) {
+						end++;
+					}
+					from = end;
+					Thumbnail thumbnail = fromURL(html, start, end);
+					if (thumbnail != null) {
+						return thumbnail;
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public Thumbnail next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				Thumbnail current = next;
+				next = advance();
+				return current;
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(thumbnails, Spliterator.ORDERED), false);
+	}
+
+	private static boolean isURLEnd(char c) {
+		return c == '"' || c == '\'' || c == '<' || c == '>' || Character.isWhitespace(c);
+	}
+
+	/*
+	 * Parses the URL between start and end in one scan, finding the position of the value of each key
+	 * first, then setting values in the order they were always set in, so that invalid values give
+	 * the same exceptions.
+	 */
+	private static Thumbnail fromURL(String s, int start, int end) {
+		int[] valueStarts = new int[KEYS.length];
+		int[] valueEnds = new int[KEYS.length];
+		Arrays.fill(valueStarts, -1);
+		int found = 0;
+		int equals = s.indexOf('=', start);
+		while (equals != -1 && equals < end && found < KEYS.length) {
+			for (int key = 0; key < KEYS.length; key++) {
+				if (valueStarts[key] != -1 || !endsWithKey(s, start, equals, KEYS[key])) {
+					continue;
+				}
+				int valueEnd = findValueEnd(s, equals + 1, end, key);
+				if (valueEnd != -1) {
+					valueStarts[key] = equals + 1;
+					valueEnds[key] = valueEnd;
+					found++;
+				}
+			}
+			equals = s.indexOf('=', equals + 1);
+		}
+		if (valueStarts[KEY_FIELD_ID] == -1) {
 			return null;
 		}
-		Matcher srcMAtcher = SRC_ID.matcher(url);
-		if (srcMAtcher.find()) {
-			thum.setSourceId(Long.parseLong(srcMAtcher.group(1)));
-		} else {
+		Thumbnail thum = new Thumbnail();
+		thum.setSourceParentId(parseLong(s, valueStarts[KEY_FIELD_ID], valueEnds[KEY_FIELD_ID]));
+		if (valueStarts[KEY_SRC_ID] == -1) {
 			return null;
 		}
-		Matcher srcMatcher = SRC_TYPE.matcher(url);
-		if (srcMatcher.find()) {
-			thum.setSourceType(SourceType.valueOf(srcMatcher.group(1)));
+		thum.setSourceId(parseLong(s, valueStarts[KEY_SRC_ID], valueEnds[KEY_SRC_ID]));
+		if (valueStarts[KEY_SRC_TYPE] != -1) {
+			thum.setSourceType(SourceType.valueOf(s.substring(valueStarts[KEY_SRC_TYPE], valueEnds[KEY_SRC_TYPE])));
 		}
-		Matcher widthMatcher = WIDTH.matcher(url);
-		if (widthMatcher.find()) {
-			thum.setWidth(Integer.parseInt(widthMatcher.group(1)));
+		if (valueStarts[KEY_WIDTH] != -1) {
+			thum.setWidth(parseInt(s, valueStarts[KEY_WIDTH], valueEnds[KEY_WIDTH]));
 		}
-		Matcher heightMatcher = HEIGHT.matcher(url);
-		if (heightMatcher.find()) {
-			thum.setHeight(Integer.parseInt(heightMatcher.group(1)));
+		if (valueStarts[KEY_HEIGHT] != -1) {
+			thum.setHeight(parseInt(s, valueStarts[KEY_HEIGHT], valueEnds[KEY_HEIGHT]));
 		}
-		Matcher rotationMatcher = ROTATION.matcher(url);
-		if (rotationMatcher.find()) {
-			thum.setRotation(Byte.parseByte(rotationMatcher.group(1)));
+		if (valueStarts[KEY_ROTATION] != -1) {
+			thum.setRotation((byte) (s.charAt(valueStarts[KEY_ROTATION]) - '0'));
 		}
-		Matcher revMatcher = REV.matcher(url);
-		if (revMatcher.find()) {
-			thum.setRevision(Long.parseLong(revMatcher.group(1)));
+		if (valueStarts[KEY_REV] != -1) {
+			thum.setRevision(parseLong(s, valueStarts[KEY_REV], valueEnds[KEY_REV]));
 		}
 		return thum;
 	}
 
+	private static boolean endsWithKey(String s, int start, int equals, String key) {
+		int keyStart = equals - key.length();
+		return keyStart >= start && s.startsWith(key, keyStart);
+	}
+
+	// end of a valid value for the key starting at from, or -1 if there's none
+	private static int findValueEnd(String s, int from, int end, int key) {
+		int i = from;
+		if (key == KEY_SRC_TYPE) {
+			while (i < end && isWordChar(s.charAt(i))) {
+				i++;
+			}
+			return i > from ? i : -1;
+		}
+		while (i < end && isDigit(s.charAt(i))) {
+			i++;
+		}
+		if (key == KEY_ROTATION) {
+			// just a single digit 0-3, not followed by another digit
+			return i == from + 1 && s.charAt(from) <= '3' ? i : -1;
+		}
+		return i > from ? i : -1;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isWordChar(char c) {
+		return isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+	}
+
+	private static long parseLong(String s, int start, int end) {
+		if (end - start > 18) {
+			// may overflow; as Long.parseLong does, including its exception
+			return Long.parseLong(s.substring(start, end));
+		}
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			value = value * 10 + (s.charAt(i) - '0');
+		}
+		return value;
+	}
+
+	private static int parseInt(String s, int start, int end) {
+		if (end - start > 9) {
+			return Integer.parseInt(s.substring(start, end));
+		}
+		return (int) parseLong(s, start, end);
+	}
+
 	public enum SourceType {
 		IMAGE, CHEM
 	}
@@ -184,6 +184,9 @@ public class User extends AbstractUserOrGroupImpl
 	private Set<UserPreference> userPreferences = new HashSet<>();
 	private Set<UserGroup> userGroups = new HashSet<>();
 	private Folder rootFolder;
+	// caches for isPermitted, with and without group permissions
+	private transient EffectivePermissions inheritedPermissions;
+	private transient EffectivePermissions directPermissions;
 	@Setter
 	private String tagsJsonString;
 
@@ -661,6 +664,7 @@ public class User extends AbstractUserOrGroupImpl
 			throw new IllegalArgumentException("Role cannot be null");
 		}
 		getRoles().add(role);
+		invalidatePermissionCache();
 	}
 
 	/**
@@ -678,7 +682,11 @@ public class User extends AbstractUserOrGroupImpl
 		if (roles.contains(role) && roles.size() == 1) {
 			return false;
 		}
-		return roles.remove(role);
+		boolean removed = roles.remove(role);
+		if (removed) {
+			invalidatePermissionCache();
+		}
+		return removed;
 	}
 
 	/**
@@ -966,6 +974,7 @@ public class User extends AbstractUserOrGroupImpl
 	public void setIncludePermissionForGroup(Group group, boolean include) {
 		userGroups.stream().filter(ug -> ug.getGroup().equals(group))
 				.forEach(ug -> ug.setIncludePermissions(include));
+		invalidatePermissionCache();
 	}
 
 	/**
@@ -983,15 +992,34 @@ public class User extends AbstractUserOrGroupImpl
 	@Transient
 	@Override
 	public boolean isPermitted(Permission p, boolean inherit) {
-		Set<Permission> permissionSet = getAllPermissions(false, inherit);
-		for (Permission userp : permissionSet) {
-			ConstraintBasedPermission cbp = (ConstraintBasedPermission) userp;
-			cbp.setUser(this);
-			if (cbp.implies(p)) {
-				return true;
+		return getEffectivePermissions(inherit).isPermitted(this, p);
+	}
+
+	/*
+	 * The permissions from getAllPermissions, cached until roles, groups or
+	 * any of the contributing permissions change
+	 */
+	private EffectivePermissions getEffectivePermissions(boolean inherit) {
+		EffectivePermissions cached = inherit ? inheritedPermissions : directPermissions;
+		if (cached == null || !cached.isCurrentFor(this)) {
+			cached = new EffectivePermissions(this, inherit);
+			if (inherit) {
+				inheritedPermissions = cached;
+			} else {
+				directPermissions = cached;
 			}
 		}
-		return false;
+		return cached;
+	}
+
+	/**
+	 * Discards the permissions cached for {@link #isPermitted(Permission, boolean)}.
+	 * Changes to roles, groups and permissions are detected anyway; this is
+	 * called when they are made through this User or its groups.
+	 */
+	public void invalidatePermissionCache() {
+		inheritedPermissions = null;
+		directPermissions = null;
 	}
 
 	/**
@@ -241,6 +241,13 @@ public class UserGroup implements Permissable, Serializable {
 
 	}
 
+	/*
+	 * Changes whenever this user-group's permissions change
+	 */
+	int permissionsVersion() {
+		return permHandler.getVersion();
+	}
+
 	/**
 	 * Public API to add a {@link ConstraintBasedPermission} to this user-group.
 	 * 
@@ -7,39 +7,70 @@ import org.apache.commons.lang.StringUtils;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.safety.Cleaner;
 import org.jsoup.safety.Safelist;
-import org.jsoup.select.Elements;
 
 class HTMLCleaner {
 
 	// this covers the url either being at the start of a string, or separated
-	// by a space
-	private Pattern URL_WORD = Pattern.compile("(\\s|>)(https?://[^<>\\s]+)");
-	private Pattern URL_WORD2 = Pattern.compile("^(https?://[^<>\\s]+)");
+	// by a space or the end of a tag
+	private static final Pattern URL_WORD = Pattern.compile("(^|\\s|>)(https?://[^<>\\s]+)");
 
-	private Pattern NEW_LINE = Pattern.compile("\r\n|\n|\r");
+	private static final Pattern NEW_LINE = Pattern.compile("\r\n|\n|\r");
+
+	// shared by all instances, Cleaner only reads its Safelist
+	private static final Cleaner CLEANER = new Cleaner(Safelist.basic());
 
 	String cleanHTMLStrict(String text, boolean wrapURLSInATags) {
 		if (StringUtils.isEmpty(text)) {
 			return text;
 		}
-		text = text.replaceAll(NEW_LINE.pattern(), "<br/> ");
+		text = NEW_LINE.matcher(text).replaceAll("<br/> ");
 
-		text = Jsoup.clean(text, Safelist.basic());
-		Document d = Jsoup.parse(text);
-		Elements aTags = d.select("a");
-		for (Element el : aTags) {
+		Document clean = CLEANER.clean(Jsoup.parseBodyFragment(text, ""));
+		for (Element el : clean.body().getElementsByTag("a")) {
 			el.attr("target", "_blank");
 			el.addClass("word-wrap");
 		}
-		text = d.select("body").html();
+		text = clean.body().html();
 		if (wrapURLSInATags) {
-			Matcher m2 = URL_WORD2.matcher(text);
-			text = m2.replaceAll(" <a href='$1' rel='nofollow' class='word-wrap' target='_blank'>$1</a>");
-			Matcher m = URL_WORD.matcher(text);
-			text = m.replaceAll("$1<a href='$2' rel='nofollow' class='word-wrap' target='_blank'>$2</a>");
+			text = wrapURLs(text);
 		}
 		return text;
 	}
 
+	/*
+	 * Wraps URLs in a tags in one pass, giving the same output as previous separate passes for URLs at
+	 * the start of the text and elsewhere. The second of those passes also wrapped the link text of the
+	 * tag added by the first, so a URL at the start is wrapped twice.
+	 */
+	private String wrapURLs(String text) {
+		Matcher m = URL_WORD.matcher(text);
+		if (!m.find()) {
+			return text;
+		}
+		StringBuilder sb = new StringBuilder(text.length() + 128);
+		int last = 0;
+		do {
+			String url = m.group(2);
+			sb.append(text, last, m.start());
+			if (m.start() == 0 && m.group(1).isEmpty()) {
+				sb.append(" <a href='").append(url).append("' rel='nofollow' class='word-wrap' target='_blank'>");
+				appendLink(sb, url);
+				sb.append("</a>");
+			} else {
+				sb.append(m.group(1));
+				appendLink(sb, url);
+			}
+			last = m.end();
+		} while (m.find());
+		sb.append(text, last, text.length());
+		return sb.toString();
+	}
+
+	private void appendLink(StringBuilder sb, String url) {
+		sb.append("<a href='").append(url).append("' rel='nofollow' class='word-wrap' target='_blank'>").append(url)
+				.append("</a>");
+	}
+
 }
@@ -1,6 +1,9 @@
 package com.researchspace.model.comms;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -25,6 +28,11 @@ public class Notification extends Communication implements Serializable {
 	private String notificationMessage;
 	private String notificationData;
 
+	// notificationData parsed for notificationType, valid while both are the ones it was parsed from
+	private transient NotificationData parsedData;
+	private transient String parsedDataJson;
+	private transient NotificationType parsedDataType;
+
 	public NotificationType getNotificationType() {
 		return notificationType;
 	}
@@ -60,11 +68,40 @@ public class Notification extends Communication implements Serializable {
 
 	public void setNotificationData(String jsonData) {
 		this.notificationData = jsonData;
+		this.parsedData = null;
+		this.parsedDataJson = null;
 	}
 
+	/**
+	 * Gets the notification data as an object. The JSON is parsed only once for the current
+	 * notification data and type, so repeated calls return the same object, which callers shouldn't
+	 * modify.
+	 * 
+	 * @return the data, or <code>null</code> if there is none
+	 */
 	@Transient
 	public NotificationData getNotificationDataObject() {
-		return NotificationData.createFromJson(this.notificationType, this.notificationData);
+		if (parsedDataJson != this.notificationData || parsedDataType != this.notificationType) {
+			parsedData = NotificationData.createFromJson(this.notificationType, this.notificationData);
+			parsedDataJson = this.notificationData;
+			parsedDataType = this.notificationType;
+		}
+		return parsedData;
+	}
+
+	/**
+	 * Gets the notification data objects of many notifications, e.g. for listing them.
+	 * 
+	 * @param notifications
+	 * @return the data object of each notification, in iteration order; <code>null</code> for
+	 *         notifications without data
+	 */
+	public static List<NotificationData> getNotificationDataObjects(Collection<Notification> notifications) {
+		List<NotificationData> dataObjects = new ArrayList<>(notifications.size());
+		for (Notification notification : notifications) {
+			dataObjects.add(notification.getNotificationDataObject());
+		}
+		return dataObjects;
 	}
 
 	public void setNotificationDataObject(NotificationData notificationData) {
@@ -1,5 +1,8 @@
 package com.researchspace.model.comms.data;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 import org.apache.commons.lang3.StringUtils;
 
 import com.researchspace.core.util.JacksonUtil;
@@ -7,13 +10,26 @@ import com.researchspace.model.comms.NotificationType;
 
 public abstract class NotificationData {
 
+	// the data class for each notification type that has data
+	private static final Map<NotificationType, Class<? extends NotificationData>> DATA_CLASSES = new EnumMap<>(
+			NotificationType.class);
+	static {
+		DATA_CLASSES.put(NotificationType.ARCHIVE_EXPORT_COMPLETED, ArchiveExportNotificationData.class);
+	}
+
+	/**
+	 * Parses notification data; each call returns a new object.
+	 * 
+	 * @param notificationType
+	 * @param notificationDataJson
+	 * @return the data, or <code>null</code> if there is no data or the type has no data
+	 */
 	public static NotificationData createFromJson(NotificationType notificationType, String notificationDataJson) {
-		if (!StringUtils.isEmpty(notificationDataJson)) {
-			if (NotificationType.ARCHIVE_EXPORT_COMPLETED.equals(notificationType)) {
-				return JacksonUtil.fromJson(notificationDataJson, ArchiveExportNotificationData.class);
-			}
+		if (StringUtils.isEmpty(notificationDataJson) || notificationType == null) {
+			return null;
 		}
-		return null;
+		Class<? extends NotificationData> dataClass = DATA_CLASSES.get(notificationType);
+		return dataClass == null ? null : JacksonUtil.fromJson(notificationDataJson, dataClass);
 	}
 	
 	public String toJson() {
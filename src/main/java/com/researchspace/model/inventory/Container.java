@@ -12,7 +12,9 @@ import java.io.Serializable;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -40,6 +42,7 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import lombok.Value;
 import org.apache.commons.lang.Validate;
 import org.hibernate.envers.Audited;
 import org.hibernate.envers.NotAudited;
@@ -86,6 +89,10 @@ public class Container extends MovableInventoryRecord implements Serializable {
   private List<ContainerLocation> locations = new ArrayList<>();
   private int locationsCount;
 
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private transient ContainerLocationIndex locationIndex;
+
   @Setter(AccessLevel.PRIVATE)
   private int contentCount;
   @Setter(AccessLevel.PRIVATE)
@@ -282,9 +289,15 @@ public class Container extends MovableInventoryRecord implements Serializable {
     return locations;
   }
 
+  public void setLocations(List<ContainerLocation> locations) {
+    this.locations = locations;
+    this.locationIndex = null;
+  }
+
   public boolean removeLocation(ContainerLocation location) {
     boolean result = locations.remove(location);
     if (result) {
+      locationIndex = null;
       resetLocationsCount();
     }
     return result;
@@ -370,18 +383,31 @@ public class Container extends MovableInventoryRecord implements Serializable {
     newLocation.setCoordX(coordX);
     newLocation.setCoordY(coordY);
     locations.add(newLocation);
+    getLocationIndex().added(newLocation);
     resetLocationsCount();
 
     return newLocation;
   }
 
+  /**
+   * Finds a location of this container by id or by coordinates, preferring a match by id. Uses a
+   * transient index of the locations, so doesn't scan them all.
+   *
+   * @param id     optional location id
+   * @param coordX optional x-coordinate
+   * @param coordY optional y-coordinate
+   * @return the location, if found
+   */
   public Optional<ContainerLocation> findSavedLocationByIdOrCoordinates(Long id, Integer coordX,
       Integer coordY) {
-    return locations.stream()
-        .filter(l -> (id != null && id.equals(l.getId())) ||
-            (coordX != null && coordX.equals(l.getCoordX()) && coordY != null && coordY.equals(
-                l.getCoordY())))
-        .findAny();
+    return getLocationIndex().find(id, coordX, coordY);
+  }
+
+  private ContainerLocationIndex getLocationIndex() {
+    if (locationIndex == null || !locationIndex.isFor(locations)) {
+      locationIndex = new ContainerLocationIndex(locations);
+    }
+    return locationIndex;
   }
 
   private void validateNewCoordinates(Integer coordX, Integer coordY) {
@@ -426,7 +452,85 @@ public class Container extends MovableInventoryRecord implements Serializable {
     record.setParentLocation(location);
     record.setLastMoveDate(Instant.now());
 
+    updateContentCount(record, 1);
+  }
+
+  /**
+   * Stores many records at once in locations with the given coordinates, e.g. when importing the
+   * contents of a plate. All the records and coordinates are validated before any is stored, so
+   * either all the records are stored or none, and the content counts are recalculated once.
+   * <p>
+   * As with {@link #addToNewLocationWithCoords(MovableInventoryRecord, Integer, Integer)}, this
+   * is for grid containers, and the records should already have been removed from any previous
+   * location.
+   *
+   * @param recordsByCoords the records to store, by target coordinates
+   * @return the locations the records were stored in, in the iteration order of recordsByCoords
+   * @throws IllegalArgumentException if any record can't be stored at its coordinates
+   */
+  public List<ContainerLocation> addToLocations(
+      Map<LocationCoords, ? extends MovableInventoryRecord> recordsByCoords) {
+    Validate.notNull(recordsByCoords);
+    if (!isGridLayoutContainer()) {
+      throw new IllegalArgumentException(
+          getContainerType() + " container can't add records to locations by coordinates");
+    }
+    Set<MovableInventoryRecord> toStore = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Map.Entry<LocationCoords, ? extends MovableInventoryRecord> entry
+        : recordsByCoords.entrySet()) {
+      LocationCoords coords = entry.getKey();
+      MovableInventoryRecord record = entry.getValue();
+      Validate.notNull(coords);
+      Validate.notNull(record);
+      validateNewCoordinates(coords.getX(), coords.getY());
+      assertCanStoreRecord(record);
+      if (!toStore.add(record)) {
+        throw new IllegalArgumentException(
+            "Record " + record.getGlobalIdentifier() + " can't be stored in more than one location");
+      }
+      findSavedLocationByIdOrCoordinates(null, coords.getX(), coords.getY())
+          .map(ContainerLocation::getStoredRecord)
+          .ifPresent(stored -> {
+            throw new IllegalArgumentException(String.format("Location (%d,%d) is already taken by "
+                + "the record: %s", coords.getX(), coords.getY(), stored.getGlobalIdentifier()));
+          });
+    }
+
+    Instant moveDate = Instant.now();
+    List<ContainerLocation> result = new ArrayList<>(recordsByCoords.size());
+    for (Map.Entry<LocationCoords, ? extends MovableInventoryRecord> entry
+        : recordsByCoords.entrySet()) {
+      ContainerLocation location = createOrRetrieveLocationWithCoords(entry.getKey().getX(),
+          entry.getKey().getY());
+      MovableInventoryRecord record = entry.getValue();
+      location.addStoredRecord(record);
+      record.setParentLocation(location);
+      record.setLastMoveDate(moveDate);
+      result.add(location);
+    }
     resetContentCount();
+    return result;
+  }
+
+  /**
+   * Coordinates of a location in a container, for
+   * {@link Container#addToLocations(Map)}.
+   */
+  @Value
+  public static class LocationCoords {
+    int x;
+    int y;
+  }
+
+  private void updateContentCount(InventoryRecord record, int delta) {
+    if (record.isSubSample()) {
+      contentCountSubSamples += delta;
+    } else if (record.isContainer()) {
+      contentCountContainers += delta;
+    } else if (record.isInstrument()) {
+      contentCountInstruments += delta;
+    }
+    contentCount += delta;
   }
 
   private void resetContentCount() {
@@ -494,9 +598,12 @@ public class Container extends MovableInventoryRecord implements Serializable {
   public void removeStoredRecord(ContainerLocation location) {
     Validate.notNull(location);
 
+    InventoryRecord removed = location.getStoredRecord();
     location.removeStoredRecord();
     resetLocationsAfterRecordRemoval(location);
-    resetContentCount();
+    if (removed != null) {
+      updateContentCount(removed, -1);
+    }
   }
 
   private void resetLocationsAfterRecordRemoval(ContainerLocation locationToRemove) {
@@ -505,6 +612,7 @@ public class Container extends MovableInventoryRecord implements Serializable {
     }
 
     locations.removeIf(l -> l.getId() == locationToRemove.getId() && l.getStoredRecord() == null);
+    locationIndex = null;
     resetListLayoutLocationCoords();
   }
 
@@ -0,0 +1,114 @@
+package com.researchspace.model.inventory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Transient lookup of a container's locations by id and by (x,y) coordinates, so that filling a
+ * large grid container doesn't need a scan of all locations for every added record.
+ * <p>
+ * The index is built lazily from the container's location list, and is rebuilt whenever it looks
+ * out of date: if the list has changed size, if an indexed location no longer has the id or
+ * coordinates it was indexed under, or if an id is looked up and some locations had no id (were
+ * unsaved) when indexed. Changes to the coordinates of listed locations made outside of
+ * {@link Container} aren't detected, so Container discards the index after changing them.
+ */
+class ContainerLocationIndex {
+
+  private final List<ContainerLocation> locations;
+  private final Map<Long, ContainerLocation> byId = new HashMap<>();
+  private final Map<Long, ContainerLocation> byCoords = new HashMap<>();
+  private int indexedSize = -1;
+  private int unsavedWhenIndexed;
+  private boolean stale;
+
+  ContainerLocationIndex(List<ContainerLocation> locations) {
+    this.locations = locations;
+  }
+
+  /**
+   * @return whether this indexes the given list instance
+   */
+  boolean isFor(List<ContainerLocation> list) {
+    return locations == list;
+  }
+
+  /**
+   * Finds a location by id or by coordinates, preferring a match by id.
+   *
+   * @param id     optional location id
+   * @param coordX optional x-coordinate
+   * @param coordY optional y-coordinate
+   */
+  Optional<ContainerLocation> find(Long id, Integer coordX, Integer coordY) {
+    if (indexedSize != locations.size()) {
+      rebuild();
+    }
+    ContainerLocation found = lookup(id, coordX, coordY);
+    if (found == null && (stale || (id != null && unsavedWhenIndexed > 0))) {
+      rebuild();
+      found = lookup(id, coordX, coordY);
+    }
+    return Optional.ofNullable(found);
+  }
+
+  /**
+   * Indexes a location just appended to the location list.
+   */
+  void added(ContainerLocation location) {
+    if (indexedSize == locations.size() - 1) {
+      index(location);
+      indexedSize++;
+    }
+  }
+
+  private ContainerLocation lookup(Long id, Integer coordX, Integer coordY) {
+    if (id != null) {
+      ContainerLocation hit = byId.get(id);
+      if (hit != null) {
+        if (id.equals(hit.getId())) {
+          return hit;
+        }
+        stale = true;
+      }
+    }
+    if (coordX != null && coordY != null) {
+      ContainerLocation hit = byCoords.get(coordsKey(coordX, coordY));
+      if (hit != null) {
+        if (coordX == hit.getCoordX() && coordY == hit.getCoordY()) {
+          return hit;
+        }
+        stale = true;
+      }
+    }
+    return null;
+  }
+
+  private void rebuild() {
+    byId.clear();
+    byCoords.clear();
+    unsavedWhenIndexed = 0;
+    stale = false;
+    for (ContainerLocation location : locations) {
+      index(location);
+    }
+    indexedSize = locations.size();
+  }
+
+  private void index(ContainerLocation location) {
+    // first wins, as in a scan of the list
+    byCoords.putIfAbsent(coordsKey(location.getCoordX(), location.getCoordY()), location);
+    if (location.getId() != null) {
+      byId.putIfAbsent(location.getId(), location);
+    } else {
+      unsavedWhenIndexed++;
+    }
+  }
+
+  private static long coordsKey(int coordX, int coordY) {
+    return ((long) coordX << 32) | (coordY & 0xffffffffL);
+  }
+
+}
@@ -0,0 +1,84 @@
+package com.researchspace.model.inventory;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Names the items of a series of samples or subsamples, as a base name, a separator and a counter
+ * zero-padded to a fixed width. Created by {@link InventorySeriesNamingHelper}, whose methods give the
+ * same names one at a time; a generator works out the parts common to all names once, so is quicker
+ * for naming many items.
+ * <p>
+ * Names are identical to those formatted by String.format, e.g. with <code>"%s.%03d"</code> for subsamples
+ * and a width of 3, including for negative counts and for locales with digits other than ASCII
+ * digits, for which names are still formatted with String.format. Instances are immutable.
+ */
+public class InventorySeriesNameGenerator {
+
+	private final String prefix;
+	private final char separator;
+	private final int width;
+	private final boolean asciiDigits;
+
+	/**
+	 * @param baseName
+	 * @param separator between base name and counter
+	 * @param width minimum width of the counter, including any minus sign, or 0 for no padding
+	 */
+	InventorySeriesNameGenerator(String baseName, char separator, int width) {
+		this.prefix = String.valueOf(baseName) + separator;
+		this.separator = separator;
+		this.width = width;
+		this.asciiDigits = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT))
+				.getZeroDigit() == '0';
+	}
+
+	/**
+	 * @param count position in the series
+	 * @return the name of the item at <code>count</code>
+	 */
+	public String getName(int count) {
+		return appendName(count, new StringBuilder(prefix.length() + Math.max(width, 11))).toString();
+	}
+
+	/**
+	 * Appends the name of an item to a buffer.
+	 *
+	 * @param count position in the series
+	 * @param buffer
+	 * @return the buffer
+	 */
+	public StringBuilder appendName(int count, StringBuilder buffer) {
+		if (!asciiDigits) {
+			String counterFormat = width > 0 ? "%0" + width + "d" : "%d";
+			return buffer.append(prefix, 0, prefix.length() - 1)
+					.append(String.format("%c" + counterFormat, separator, count));
+		}
+		buffer.append(prefix);
+		String digits;
+		if (count < 0) {
+			buffer.append('-');
+			digits = Long.toString(-(long) count);
+		} else {
+			digits = Integer.toString(count);
+		}
+		for (int padding = width - (count < 0 ? 1 : 0) - digits.length(); padding > 0; padding--) {
+			buffer.append('0');
+		}
+		return buffer.append(digits);
+	}
+
+	/**
+	 * Names of a range of items, generated as the stream is consumed.
+	 *
+	 * @param fromCount first position, inclusive
+	 * @param toCount last position, inclusive
+	 * @return names of the items from <code>fromCount</code> to <code>toCount</code>
+	 */
+	public Stream<String> names(int fromCount, int toCount) {
+		return IntStream.rangeClosed(fromCount, toCount).mapToObj(this::getName);
+	}
+
+}
@@ -1,7 +1,5 @@
 package com.researchspace.model.inventory;
 
-import org.apache.commons.lang.StringUtils;
-
 /**
  * Utility class for naming series of samples and subsamples.
  */
@@ -12,8 +10,7 @@ public class InventorySeriesNamingHelper {
 	 * Suffix will be minimum two-digits, zero-prefixed if necessary.
 	 */
 	public static String getSerialNameForSubSample(String baseName, int currentCount, Integer totalCount) {
-		int suffixLength = Math.max(2, String.valueOf(totalCount).length());
-		return String.format("%s.%0" +  suffixLength + "d", baseName, currentCount);
+		return getSubSampleNameGenerator(baseName, totalCount).getName(currentCount);
 	}
 
 	/**
@@ -21,7 +18,7 @@ public class InventorySeriesNamingHelper {
 	 * Suffix will not be zero-prefixed.
 	 */
 	public static String getSerialNameForSubSampleNoZeroPrefix(String baseName, int currentCount) {
-		return String.format("%s.%d", baseName, currentCount);
+		return new InventorySeriesNameGenerator(baseName, '.', 0).getName(currentCount);
 	}
 
 
@@ -30,7 +27,26 @@ public class InventorySeriesNamingHelper {
 	 * Suffix will be minimum two-digits, zero-prefixed if necessary.
 	 */
 	public static String getSerialNameForSample(String baseName, int currentCount, Integer totalCount) {
-		int suffixLength = Math.max(2, String.valueOf(totalCount).length()); 
-		return String.format("%s-%0" +  suffixLength + "d", baseName, currentCount);
+		return getSampleNameGenerator(baseName, totalCount).getName(currentCount);
+	}
+
+	/**
+	 * Generator for the names {@link #getSerialNameForSubSample(String, int, Integer)} gives a series
+	 * of <code>totalCount</code> subsamples, for naming many subsamples at once.
+	 */
+	public static InventorySeriesNameGenerator getSubSampleNameGenerator(String baseName, Integer totalCount) {
+		return new InventorySeriesNameGenerator(baseName, '.', getSuffixLength(totalCount));
+	}
+
+	/**
+	 * Generator for the names {@link #getSerialNameForSample(String, int, Integer)} gives a series of
+	 * <code>totalCount</code> samples, for naming many samples at once.
+	 */
+	public static InventorySeriesNameGenerator getSampleNameGenerator(String baseName, Integer totalCount) {
+		return new InventorySeriesNameGenerator(baseName, '-', getSuffixLength(totalCount));
+	}
+
+	private static int getSuffixLength(Integer totalCount) {
+		return Math.max(2, String.valueOf(totalCount).length());
 	}
-}
\ No newline at end of file
+}
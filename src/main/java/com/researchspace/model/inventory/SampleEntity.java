@@ -11,6 +11,7 @@ import com.researchspace.model.inventory.field.ExtraField;
 import com.researchspace.model.inventory.field.InventoryEntityField;
 import com.researchspace.model.units.Quantifiable;
 import com.researchspace.model.units.QuantityInfo;
+import com.researchspace.model.units.QuantityTotal;
 import com.researchspace.model.units.QuantityUtils;
 import com.researchspace.model.units.RSUnitDef;
 import com.researchspace.model.units.ValidTemperature;
@@ -18,7 +19,10 @@ import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -271,20 +275,49 @@ public abstract class SampleEntity extends InventoryRecord implements Serializab
 
   private List<SubSample> activeSubSamples;
 
+  /* whether activeSubSamples was returned to a caller, so must be copied before adding to it */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private transient boolean activeSubSamplesReturned;
+
+  /*
+   * Quantities of active subsamples, as copied when added to activeSubSamplesTotal, with null values for
+   * active subsamples without quantity. Both are null until the total quantity is calculated, and are
+   * reset when active subsamples are refreshed.
+   */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private transient Map<SubSample, QuantityInfo> totalledSubSampleQuantities;
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private transient QuantityTotal activeSubSamplesTotal;
+
   @Transient
   public List<SubSample> getActiveSubSamples() {
+    List<SubSample> active = activeSubSampleList();
+    activeSubSamplesReturned = true;
+    return active;
+  }
+
+  private List<SubSample> activeSubSampleList() {
     if (activeSubSamples == null) {
       activeSubSamples = subSamples.stream()
-          .filter(ss -> !ss.isDeleted() || (isDeleted() && ss.isDeletedOnSampleDeletion()))
+          .filter(this::isActiveSubSample)
           .collect(Collectors.toList());
+      activeSubSamplesReturned = false;
     }
     return activeSubSamples;
   }
 
+  private boolean isActiveSubSample(SubSample ss) {
+    return !ss.isDeleted() || (isDeleted() && ss.isDeletedOnSampleDeletion());
+  }
+
   public void refreshActiveSubSamples() {
     activeSubSamples = null;
-    getActiveSubSamples();
+    activeSubSampleList();
     activeSubSamplesCount = activeSubSamples.size();
+    resetActiveSubSamplesTotal();
   }
 
   @Transient
@@ -294,7 +327,7 @@ public abstract class SampleEntity extends InventoryRecord implements Serializab
   }
 
   public boolean hasExactlyOneSubSample() {
-    return getActiveSubSamples().size() == 1;
+    return activeSubSampleList().size() == 1;
   }
 
   /**
@@ -302,7 +335,7 @@ public abstract class SampleEntity extends InventoryRecord implements Serializab
    */
   @Transient
   public Optional<SubSample> getOnlySubSample() {
-    return hasExactlyOneSubSample() ? Optional.of(getActiveSubSamples().get(0)) : Optional.empty();
+    return hasExactlyOneSubSample() ? Optional.of(activeSubSampleList().get(0)) : Optional.empty();
   }
 
   /**
@@ -472,32 +505,82 @@ public abstract class SampleEntity extends InventoryRecord implements Serializab
   public void setTotalQuantity(QuantityInfo quantityInfo) {
     if (hasExactlyOneSubSample()) {
       this.setQuantityInfo(quantityInfo);
-      getActiveSubSamples().get(0).setQuantityInfo(quantityInfo);
+      activeSubSampleList().get(0).setQuantityInfo(quantityInfo);
+      resetActiveSubSamplesTotal();
     } else {
       throw new IllegalStateException(
           "Can't save total quantity directly in Sample having multiple SubSamples");
     }
   }
 
+  /**
+   * Sets the total quantity to the sum of the quantities of all active subsamples.
+   */
   public void recalculateTotalQuantity() {
-    QuantityUtils quantityUtils = new QuantityUtils();
-    List<QuantityInfo> subSampleQuantities = getActiveSubSamples().stream()
-        .filter(ss -> ss.getQuantity() != null)
-        .map(ss -> ss.getQuantity()).collect(Collectors.toList());
+    totalledSubSampleQuantities = new IdentityHashMap<>();
+    activeSubSamplesTotal = new QuantityTotal();
+    for (SubSample ss : activeSubSampleList()) {
+      addToActiveSubSamplesTotal(ss);
+    }
+    applyActiveSubSamplesTotal();
+  }
 
-    if (subSampleQuantities.isEmpty()) {
+  /**
+   * Updates the total quantity after a change to the quantity of a subsample, without summing the
+   * quantities of all subsamples again if the total is already known.
+   */
+  void recalculateTotalQuantity(SubSample changed) {
+    if (totalledSubSampleQuantities == null
+        || totalledSubSampleQuantities.size() != activeSubSampleList().size()) {
+      recalculateTotalQuantity();
+      return;
+    }
+    if (totalledSubSampleQuantities.containsKey(changed)) {
+      QuantityInfo previous = totalledSubSampleQuantities.get(changed);
+      if (previous != null) {
+        activeSubSamplesTotal.remove(previous);
+      }
+      addToActiveSubSamplesTotal(changed);
+    }
+    applyActiveSubSamplesTotal();
+  }
+
+  private void addToActiveSubSamplesTotal(SubSample ss) {
+    QuantityInfo quantity = ss.getQuantity() == null ? null : ss.getQuantity().copy();
+    totalledSubSampleQuantities.put(ss, quantity);
+    if (quantity != null) {
+      activeSubSamplesTotal.add(quantity);
+    }
+  }
+
+  private void applyActiveSubSamplesTotal() {
+    if (activeSubSamplesTotal.size() == 0) {
       setQuantityInfo(null);
       return;
     }
-    if (subSampleQuantities.size() == 1) {
-      setQuantityInfo(subSampleQuantities.get(0));
+    if (activeSubSamplesTotal.size() == 1) {
+      setQuantityInfo(getActiveSubSampleQuantities().get(0));
       return;
     }
-
-    QuantityInfo totalQuantity = quantityUtils.sum(subSampleQuantities);
+    QuantityInfo totalQuantity = activeSubSamplesTotal.getTotal();
+    if (totalQuantity == null) {
+      // can't be worked out from the running total, e.g. for temperatures
+      totalQuantity = new QuantityUtils().sum(getActiveSubSampleQuantities());
+    }
     setQuantityInfo(totalQuantity);
   }
 
+  private List<QuantityInfo> getActiveSubSampleQuantities() {
+    return activeSubSampleList().stream()
+        .filter(ss -> ss.getQuantity() != null)
+        .map(ss -> ss.getQuantity()).collect(Collectors.toList());
+  }
+
+  private void resetActiveSubSamplesTotal() {
+    totalledSubSampleQuantities = null;
+    activeSubSamplesTotal = null;
+  }
+
   /**
    * @return the list of extra fields of this Sample, including deleted fields.
    */
@@ -562,7 +645,47 @@ public abstract class SampleEntity extends InventoryRecord implements Serializab
   public void addSubSample(SubSample subSampleToAdd) {
     this.subSamples.add(subSampleToAdd);
     subSampleToAdd.setSample(this);
-    refreshActiveSubSamples();
+    addToActiveSubSamples(subSampleToAdd);
+  }
+
+  /**
+   * Adds many subsamples, as {@link #addSubSample(SubSample)} does for each one.
+   *
+   * @param subSamplesToAdd
+   */
+  public void addSubSamples(Collection<SubSample> subSamplesToAdd) {
+    if (subSamples instanceof ArrayList) {
+      ((ArrayList<SubSample>) subSamples).ensureCapacity(subSamples.size() + subSamplesToAdd.size());
+    }
+    for (SubSample subSampleToAdd : subSamplesToAdd) {
+      addSubSample(subSampleToAdd);
+    }
+  }
+
+  /*
+   * Adds a new subsample to active subsamples and the total, if already worked out, rather than
+   * refreshing them from all subsamples.
+   */
+  private void addToActiveSubSamples(SubSample added) {
+    if (activeSubSamples == null) {
+      refreshActiveSubSamples();
+      return;
+    }
+    if (isActiveSubSample(added)) {
+      if (activeSubSamplesReturned) {
+        // lists already returned by getActiveSubSamples don't change
+        activeSubSamples = new ArrayList<>(activeSubSamples);
+        activeSubSamplesReturned = false;
+      }
+      activeSubSamples.add(added);
+      if (totalledSubSampleQuantities != null && totalledSubSampleQuantities.containsKey(added)) {
+        // added twice, so counted twice by a full recalculation
+        resetActiveSubSamplesTotal();
+      } else if (totalledSubSampleQuantities != null) {
+        addToActiveSubSamplesTotal(added);
+      }
+    }
+    activeSubSamplesCount = activeSubSamples.size();
   }
 
   /**
@@ -152,7 +152,7 @@ public class SubSample extends MovableInventoryRecord implements Serializable, Q
 		this.setQuantityInfo(quantityInfo);
 		// when copying, sample will be null
 		if (sample != null) {
-			sample.recalculateTotalQuantity();
+			sample.recalculateTotalQuantity(this);
 		}
 	}
 
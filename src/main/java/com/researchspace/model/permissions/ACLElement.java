@@ -1,7 +1,10 @@
 package com.researchspace.model.permissions;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -17,6 +20,10 @@ import com.researchspace.model.RoleInGroup;
  * <p>
  * Equality is based on the permission string and the user or group's unique
  * name.
+ * <p>
+ * The permitted actions and any role restrictions are resolved once, on
+ * construction, so that ACL permission checks don't need to re-parse the
+ * permission string.
  */
 public final class ACLElement implements Serializable {
 
@@ -92,12 +99,36 @@ public final class ACLElement implements Serializable {
 		}
 		this.userOrGrpUniqueName = userOrGrpUniqueName;
 		this.permString = perm.getString();
+		this.actions = EnumSet.copyOf(perm.getActions());
+		this.roles = parseRoles(userOrGrpUniqueName);
 	}
 
 	private final String userOrGrpUniqueName;
 	// a single permission
 	private final String permString;
 
+	// derived from permString and userOrGrpUniqueName; not part of equality
+	private transient EnumSet<PermissionType> actions;
+	private transient Set<RoleInGroup> roles;
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.actions = EnumSet.copyOf(ConstraintPermissionResolver.STATIC_RESOLVER.resolveSharedPermission(permString)
+				.getActions());
+		this.roles = parseRoles(userOrGrpUniqueName);
+	}
+
+	/**
+	 * Boolean test for whether the permission of this element allows the
+	 * requested action. Uses the pre-resolved actions, so does not allocate.
+	 * 
+	 * @param requestedAction
+	 * @return
+	 */
+	boolean permitsAction(PermissionType requestedAction) {
+		return ConstraintBasedPermission.actionsImply(actions, requestedAction);
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -131,8 +162,17 @@ public final class ACLElement implements Serializable {
 		return true;
 	}
 
+	/**
+	 * Gets the roles that a group permission is restricted to.
+	 * 
+	 * @return An unmodifiable, possibly empty, Set of {@link RoleInGroup}
+	 */
 	Set<RoleInGroup> getRoles() {
-		Set<RoleInGroup> rg = new HashSet<>(3);
+		return roles;
+	}
+
+	private static Set<RoleInGroup> parseRoles(String userOrGrpUniqueName) {
+		EnumSet<RoleInGroup> rg = EnumSet.noneOf(RoleInGroup.class);
 		Matcher m = rigTypes.matcher(userOrGrpUniqueName);
 		if (m.find()) {
 			String roles = userOrGrpUniqueName.substring(m.start(), m.end());
@@ -146,7 +186,7 @@ public final class ACLElement implements Serializable {
 				rg.add(RoleInGroup.PI);
 			}
 		}
-		return rg;
+		return Collections.unmodifiableSet(rg);
 	}
 
 }
@@ -0,0 +1,193 @@
+package com.researchspace.model.permissions;
+
+import java.io.Serializable;
+import java.util.Set;
+
+import org.apache.shiro.authz.Permission;
+
+import com.researchspace.model.IEntityPermission;
+
+/**
+ * Immutable, thread-safe form of a {@link ConstraintBasedPermission}, for
+ * evaluating <code>implies</code> many times, possibly concurrently.
+ * <p>
+ * The domain and actions are packed into a single bit mask, with 'write
+ * implies read' folded in at compile time. Constraints are then checked
+ * cheapest first: ID, group, community, property and finally location
+ * constraints.
+ * <p>
+ * Unlike {@link ConstraintBasedPermission}, this class holds no per-check
+ * user, so a property constraint such as <code>property_owner=${self}</code>
+ * is always evaluated against the subject in the current security context.
+ * <p>
+ * Create using {@link ConstraintBasedPermission#compile()}.
+ */
+public final class CompiledPermission implements Permission, Serializable {
+
+	private static final long serialVersionUID = 3372017735211512389L;
+
+	// actions occupy the low 32 bits, domains the high 32 bits. There are fewer
+	// than 32 of each.
+	private static final int DOMAIN_SHIFT = 32;
+
+	private final long mask;
+	private final IdConstraint idConstraint;
+	private final GroupConstraint groupConstraint;
+	private final CommunityConstraint communityConstraint;
+	private final PropertyConstraint[] propertyConstraints;
+	private final LocationConstraint[] locationConstraints;
+	private final String permissionString;
+
+	CompiledPermission(ConstraintBasedPermission source) {
+		long bits = 0;
+		if (source.isEnabled()) {
+			if (PermissionDomain.ALL.equals(source.getDomain())) {
+				for (PermissionDomain domain : PermissionDomain.values()) {
+					bits |= domainBit(domain);
+				}
+			} else if (source.getDomain() != null) {
+				bits |= domainBit(source.getDomain());
+			}
+			for (PermissionType action : source.getActions()) {
+				bits |= actionBit(action);
+			}
+			// write implies read permission
+			if (source.getActions().contains(PermissionType.WRITE)) {
+				bits |= actionBit(PermissionType.READ);
+			}
+		}
+		this.mask = bits;
+		this.idConstraint = source.getIdConstraint();
+		this.groupConstraint = source.getGroupConstraint();
+		this.communityConstraint = source.getCommunityConstraint();
+		this.propertyConstraints = source.getPropertyConstraints().values().stream()
+				.map(pc -> new PropertyConstraint(pc.getName(), pc.getValue())).toArray(PropertyConstraint[]::new);
+		this.locationConstraints = source.getLocationConstraints().toArray(new LocationConstraint[0]);
+		this.permissionString = source.getString();
+	}
+
+	private static long domainBit(PermissionDomain domain) {
+		return 1L << (DOMAIN_SHIFT + domain.ordinal());
+	}
+
+	private static long actionBit(PermissionType action) {
+		return 1L << action.ordinal();
+	}
+
+	@Override
+	public boolean implies(Permission permission) {
+		IEntityPermission entityPermission;
+		if (permission instanceof IEntityPermission) {
+			entityPermission = (IEntityPermission) permission;
+		} else if (permission instanceof ConstraintBasedPermission) {
+			entityPermission = ((ConstraintBasedPermission) permission).getAsEntityPermission();
+		} else {
+			return false;
+		}
+		return implies(entityPermission);
+	}
+
+	/**
+	 * Boolean test for whether this permission allows the requested
+	 * permission.
+	 *
+	 * @param entityPermission
+	 * @return
+	 */
+	public boolean implies(IEntityPermission entityPermission) {
+		PermissionDomain domain = entityPermission.getDomain();
+		PermissionType action = entityPermission.getAction();
+		if (domain == null || action == null) {
+			return false;
+		}
+		long requested = domainBit(domain) | actionBit(action);
+		if ((mask & requested) != requested) {
+			return false;
+		}
+		if (idConstraint != null && !idConstraint.satisfies(entityPermission.getId())) {
+			return false;
+		}
+		if (groupConstraint != null && !satisfiesGroup(entityPermission.getGroupConstraints())) {
+			return false;
+		}
+		if (communityConstraint != null && !satisfiesCommunity(entityPermission.getCommunityConstraints())) {
+			return false;
+		}
+		// only check match properties if both this and test permission declare
+		// property constraints
+		for (PropertyConstraint pc : propertyConstraints) {
+			if (entityPermission.hasProperty(pc.getName())
+					&& !pc.satisfies(entityPermission.getPropertyConstraintForProperty(pc.getName()))) {
+				return false;
+			}
+		}
+		if (locationConstraints.length > 0) {
+			LocationConstraint toTest = entityPermission.getLocationConstraint();
+			// if no info, can't grant authorisation
+			if (toTest == null) {
+				return false;
+			}
+			for (LocationConstraint lc : locationConstraints) {
+				if (lc.satisfies(toTest)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return true;
+	}
+
+	private boolean satisfiesGroup(Set<GroupConstraint> others) {
+		if (others == null) {
+			return true;
+		}
+		for (GroupConstraint other : others) {
+			if (groupConstraint.satisfies(other)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean satisfiesCommunity(Set<CommunityConstraint> others) {
+		if (others == null) {
+			return true;
+		}
+		for (CommunityConstraint other : others) {
+			if (communityConstraint.satisfies(other)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the String representation of the permission this was compiled from.
+	 */
+	public String getString() {
+		return permissionString;
+	}
+
+	@Override
+	public String toString() {
+		return getString();
+	}
+
+	@Override
+	public int hashCode() {
+		return permissionString.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		CompiledPermission other = (CompiledPermission) obj;
+		return mask == other.mask && permissionString.equals(other.permissionString);
+	}
+
+}
@@ -238,20 +238,40 @@ public class ConstraintBasedPermission implements Serializable, Permission, Comp
 		return true;
 	}
 
+	/**
+	 * Creates an immutable snapshot of this permission that can be shared
+	 * between threads and evaluated without allocation. Later changes to this
+	 * permission are not reflected in the snapshot.
+	 * 
+	 * @return A new {@link CompiledPermission}
+	 */
+	public CompiledPermission compile() {
+		return new CompiledPermission(this);
+	}
+
 	boolean matchActions(PermissionType action) {
-		if (!actions.contains(action)) {
-			// write implies read permission
-			if (PermissionType.READ.equals(action)) {
-				if (!actions.contains(PermissionType.WRITE)) {
-					return exitFalse();
-				}
-			} else {
-				return exitFalse();
-			}
+		if (!actionsImply(actions, action)) {
+			return exitFalse();
 		}
 		return true;
 	}
 
+	/**
+	 * Boolean test for whether a set of actions permits the requested action.
+	 * Write permission implies read permission.
+	 * 
+	 * @param actions
+	 * @param action
+	 * @return
+	 */
+	static boolean actionsImply(Set<PermissionType> actions, PermissionType action) {
+		if (actions.contains(action)) {
+			return true;
+		}
+		// write implies read permission
+		return PermissionType.READ.equals(action) && actions.contains(PermissionType.WRITE);
+	}
+
 	@Override
 	public String toString() {
 		return getString();
@@ -274,7 +294,7 @@ public class ConstraintBasedPermission implements Serializable, Permission, Comp
 
 		boolean needsAnd = false;
 		IdConstraint idc = getIdConstraint();
-		if (idc != null && !idc.getId().isEmpty()) {
+		if (idc != null && idc.size() > 0) {
 			needsAnd = true;
 			sb.append(idc);
 
@@ -2,25 +2,53 @@ package com.researchspace.model.permissions;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.collections4.ListUtils;
 import org.apache.shiro.authz.Permission;
 import org.apache.shiro.authz.permission.PermissionResolver;
 
 /**
  * Converts String based representation of a Permission to a Permissions object.
+ * <p>
+ * Parsed permissions are held in a bounded cache keyed by permission string.
+ * Cached permissions are never handed out; callers of
+ * {@link #resolvePermission(String)} get their own copy, which shares the
+ * immutable constraints of the cached permission.
  */
 public class ConstraintPermissionResolver implements PermissionResolver {
 
-	private static final int MAX_ID_PERMS = 124;
+	static final int DEFAULT_MAX_CACHE_SIZE = 10_000;
+
+	private final int maxCacheSize;
+	private final ConcurrentMap<String, ConstraintBasedPermission> cache = new ConcurrentHashMap<>();
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+	private final LongAdder cacheEvictions = new LongAdder();
 
 	public ConstraintPermissionResolver() {
+		this(DEFAULT_MAX_CACHE_SIZE);
+	}
+
+	/**
+	 * @param maxCacheSize
+	 *            The maximum number of parsed permission strings to cache. 0
+	 *            disables caching.
+	 */
+	public ConstraintPermissionResolver(int maxCacheSize) {
+		if (maxCacheSize < 0) {
+			throw new IllegalArgumentException("maxCacheSize must be >= 0 but was " + maxCacheSize);
+		}
+		this.maxCacheSize = maxCacheSize;
 	}
 
 	static final String DATE_RANGE_PARAM_PREFIX = "date_range";
@@ -44,19 +72,101 @@ public class ConstraintPermissionResolver implements PermissionResolver {
 	 * @return
 	 */
 	public static ConstraintBasedPermission populatePermssion(ConstraintBasedPermission p, String permStr) {
-		ConstraintBasedPermission copy = (ConstraintBasedPermission) STATIC_RESOLVER.resolvePermission(permStr);
-		p.setDomain(copy.getDomain());
-		p.setActions(copy.getActions());
-		p.setIdConstraint(copy.getIdConstraint());
-		p.setLocationConstraints(copy.getLocationConstraints());
-		p.setPropertyConstraints(copy.getPropertyConstraints());
-		p.setGroupConstraint(copy.getGroupConstraint());
-		p.setCommunityConstraint(copy.getCommunityConstraint());
-		return p;
+		return copyInto(STATIC_RESOLVER.resolveSharedPermission(permStr), p);
 	}
 
+	/**
+	 * Parses the permission string into a new {@link ConstraintBasedPermission}
+	 * that the caller is free to modify.
+	 */
 	@Override
 	public ConstraintBasedPermission resolvePermission(String permissionString) {
+		return copyInto(resolveSharedPermission(permissionString), new ConstraintBasedPermission());
+	}
+
+	/**
+	 * Gets the cached, shared permission for this permission string, parsing
+	 * it if need be. <br/>
+	 * The returned object must not be modified by callers.
+	 * 
+	 * @param permissionString
+	 * @return
+	 */
+	ConstraintBasedPermission resolveSharedPermission(String permissionString) {
+		ConstraintBasedPermission cached = cache.get(permissionString);
+		if (cached != null) {
+			cacheHits.increment();
+			return cached;
+		}
+		cacheMisses.increment();
+		ConstraintBasedPermission parsed = parsePermission(permissionString);
+		if (maxCacheSize > 0) {
+			evictIfFull();
+			cached = cache.putIfAbsent(permissionString, parsed);
+		}
+		return cached != null ? cached : parsed;
+	}
+
+	private void evictIfFull() {
+		Iterator<String> keys = cache.keySet().iterator();
+		while (cache.size() >= maxCacheSize && keys.hasNext()) {
+			keys.next();
+			keys.remove();
+			cacheEvictions.increment();
+		}
+	}
+
+	/*
+	 * Copies the state of a shared permission into target. Constraints are
+	 * immutable so can be shared, apart from property constraints, which
+	 * hold a reference to their owning permission.
+	 */
+	private static ConstraintBasedPermission copyInto(ConstraintBasedPermission shared,
+			ConstraintBasedPermission target) {
+		target.setDomain(shared.getDomain());
+		target.setActions(shared.getActions().clone());
+		target.setIdConstraint(shared.getIdConstraint());
+		target.setLocationConstraints(new HashSet<>(shared.getLocationConstraints()));
+		Map<String, PropertyConstraint> propertyConstraints = new HashMap<>();
+		for (PropertyConstraint pc : shared.getPropertyConstraints().values()) {
+			propertyConstraints.put(pc.getName(), new PropertyConstraint(pc.getName(), pc.getValue()));
+		}
+		target.setPropertyConstraints(propertyConstraints);
+		target.setGroupConstraint(shared.getGroupConstraint());
+		target.setCommunityConstraint(shared.getCommunityConstraint());
+		return target;
+	}
+
+	/**
+	 * Removes all cached permissions. Cache statistics are not reset.
+	 */
+	public void clearCache() {
+		cache.clear();
+	}
+
+	/**
+	 * @return The number of permission strings resolved from the cache
+	 */
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	/**
+	 * @return The number of permission strings that had to be parsed
+	 */
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+
+	/**
+	 * @return The number of parsed permissions removed to keep the cache
+	 *         within its maximum size
+	 */
+	public long getCacheEvictions() {
+		return cacheEvictions.sum();
+	}
+
+	private ConstraintBasedPermission parsePermission(String permissionString) {
 		String[] parts = permissionString.trim().split(PART_DELIMITER);
 
 		PermissionDomain domain = PermissionDomain.valueOf(parts[0].toUpperCase());
@@ -129,11 +239,11 @@ public class ConstraintPermissionResolver implements PermissionResolver {
 	public IdConstraint parseIdConstraint(String constraint) {
 		String value = constraint.split("=")[1];
 		String[] ids = value.split(LIST_SEPARATOR);
-		Set<Long> idSet = new HashSet<>(ids.length);
-		for (String id : ids) {
-			idSet.add(Long.parseLong(id));
+		long[] idArray = new long[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			idArray[i] = Long.parseLong(ids[i]);
 		}
-		IdConstraint lc = new IdConstraint(idSet);
+		IdConstraint lc = new IdConstraint(idArray);
 		return lc;
 	}
 
@@ -142,9 +252,10 @@ public class ConstraintPermissionResolver implements PermissionResolver {
 
 	/**
 	 * Modifies in place a collection of permissions, reducing many individual RECORD:READ:1, RECORD:READ:2 permissions
-	 *  to  as few RECORD:READ:123,456,789 permissions as possible.
-	 * Currently DB length for permissions is 2500. Max char length for a long is 19 characters; we can guarantee
-	 *  to fit 124 ids + commas + 'RECORD:WRITE' into 2500 chars
+	 *  to a single RECORD:READ:123,456,789 permission, and likewise for RECORD:WRITE.
+	 * <p>
+	 * The flattened permissions are for in-memory authorisation checks only; their String form can exceed the
+	 * 2500 char DB length for permissions, so they should not be persisted.
 	 */
 	public void flattenRecordReadWritePermissions(Collection<Permission> allPerms) {
 		List<Long> readids = new ArrayList<>();
@@ -170,15 +281,13 @@ public class ConstraintPermissionResolver implements PermissionResolver {
 
 	private void flatten(List<Long> ids, PermissionType permType, Collection<Permission> allPerms) {
 		if (!ids.isEmpty()) {
-			List<List<Long>> partitioned = ListUtils.partition(ids, MAX_ID_PERMS);
-			for (List<Long> pt : partitioned) {
-				ConstraintBasedPermission flattenedReads = new ConstraintBasedPermission(PermissionDomain.RECORD,
-						permType);
-				IdConstraint id = new IdConstraint(new HashSet<>(pt));
-				flattenedReads.setIdConstraint(id);
-
-				allPerms.add(flattenedReads);
+			long[] idArray = new long[ids.size()];
+			for (int i = 0; i < idArray.length; i++) {
+				idArray[i] = ids.get(i);
 			}
+			ConstraintBasedPermission flattened = new ConstraintBasedPermission(PermissionDomain.RECORD, permType);
+			flattened.setIdConstraint(new IdConstraint(idArray));
+			allPerms.add(flattened);
 		}
 	}
 
@@ -2,42 +2,108 @@ package com.researchspace.model.permissions;
 
 import com.researchspace.model.utils.Utils;
 import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeSet;
 
+/**
+ * Restricts a permission to a set of database IDs.
+ * <p>
+ * IDs are held as a sorted array of primitive longs. Above a small number of
+ * IDs, {@link #satisfies(Long)} uses an open-addressing hash table, built on
+ * first use, so a single constraint can hold many thousands of IDs and still
+ * be checked in constant time.
+ */
 public class IdConstraint implements Serializable {
 
 	/**
-	 * 
+	 *
 	 */
-	private static final long serialVersionUID = 1L;
-	private Set<Long> ids = new TreeSet<>();
+	private static final long serialVersionUID = 2L;
+
+	// up to this size, a linear scan of the sorted ids is as fast as a lookup
+	private static final int MAX_LINEAR_SCAN_SIZE = 16;
+	// marks an empty slot in the lookup table
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	private final long[] ids;
+
+	private transient volatile long[] lookupTable;
 
 	public boolean satisfies(Long id) {
-		return ids.contains(id);
+		return id != null && contains(id);
+	}
+
+	private boolean contains(long toFind) {
+		if (ids.length <= MAX_LINEAR_SCAN_SIZE || toFind == EMPTY) {
+			for (long candidate : ids) {
+				if (candidate == toFind) {
+					return true;
+				}
+			}
+			return false;
+		}
+		long[] table = getLookupTable();
+		int mask = table.length - 1;
+		for (int slot = mix(toFind) & mask;; slot = (slot + 1) & mask) {
+			long candidate = table[slot];
+			if (candidate == toFind) {
+				return true;
+			}
+			if (candidate == EMPTY) {
+				return false;
+			}
+		}
+	}
+
+	private long[] getLookupTable() {
+		long[] table = lookupTable;
+		if (table == null) {
+			// power of 2 at least twice the number of ids, so is at most half full
+			table = new long[Integer.highestOneBit(ids.length) << 2];
+			Arrays.fill(table, EMPTY);
+			int mask = table.length - 1;
+			for (long id : ids) {
+				int slot = mix(id) & mask;
+				while (table[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = id;
+			}
+			lookupTable = table;
+		}
+		return table;
+	}
+
+	private static int mix(long id) {
+		long h = id * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
 	}
 
 	/**
 	 * Gets aunmodifiable ordered set of Ids
-	 * 
+	 *
 	 * @return
 	 */
 	public Set<Long> getId() {
-		return Collections.unmodifiableSet(ids);
+		return Collections.unmodifiableSet(new IdSetView());
 	}
 
-	/*
-	 * MAkes a copy of the passed in set.
-	 * 
-	 * @param ids
+	/**
+	 * Gets the number of IDs in this constraint, without creating a Set
+	 *
+	 * @return
 	 */
-	void setId(Set<Long> ids) {
-		this.ids = new TreeSet<>(ids);
+	public int size() {
+		return ids.length;
 	}
 
 	/**
-	 * 
+	 * Makes a copy of the passed in set.
+	 *
 	 * @param ids
 	 * @throws IllegalArgumentException
 	 *             if the set is null.
@@ -47,30 +113,62 @@ public class IdConstraint implements Serializable {
 		if (ids == null) {
 			throw new IllegalArgumentException("id set is null");
 		}
-		setId(ids);
+		long[] copy = new long[ids.size()];
+		int i = 0;
+		for (Long id : ids) {
+			copy[i++] = id;
+		}
+		this.ids = sortedAndDistinct(copy);
 	}
 
 	/**
-	 * 
+	 *
 	 * @param id
 	 *            A non-null database ID
 	 */
 	public IdConstraint(Long id) {
-		ids = new TreeSet<>();
-		ids.add(id);
+		ids = new long[] { id };
+	}
+
+	/**
+	 * Creates a constraint from an array of ids, which need not be sorted or
+	 * distinct. The array is not retained.
+	 *
+	 * @param ids
+	 */
+	IdConstraint(long[] ids) {
+		this.ids = sortedAndDistinct(ids.clone());
+	}
+
+	private static long[] sortedAndDistinct(long[] ids) {
+		Arrays.sort(ids);
+		int distinct = 0;
+		for (int i = 0; i < ids.length; i++) {
+			if (i == 0 || ids[i] != ids[i - 1]) {
+				ids[distinct++] = ids[i];
+			}
+		}
+		return distinct == ids.length ? ids : Arrays.copyOf(ids, distinct);
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((ids == null) ? 0 : ids.hashCode());
+		result = prime * result + Arrays.hashCode(ids);
 		return result;
 	}
 
+	/**
+	 * Boolean test for whether the argument's IDs are all contained in this
+	 * constraint.
+	 *
+	 * @param other
+	 * @return
+	 */
 	public boolean isEquivalentTo(IdConstraint other) {
-		for (Long id : other.ids) {
-			if (!ids.contains(id)) {
+		for (long id : other.ids) {
+			if (!contains(id)) {
 				return false;
 			}
 		}
@@ -86,12 +184,7 @@ public class IdConstraint implements Serializable {
 		if (getClass() != obj.getClass())
 			return false;
 		IdConstraint other = (IdConstraint) obj;
-		if (ids == null) {
-			if (other.ids != null)
-				return false;
-		} else if (!ids.equals(other.ids))
-			return false;
-		return true;
+		return Arrays.equals(ids, other.ids);
 	}
 
 	public String toString() {
@@ -99,17 +192,17 @@ public class IdConstraint implements Serializable {
 	}
 
 	/**
-	 * Gets a String representation for the permission string format.
-	 * 
-	 * @return
+	 *
+	 * @return A String in the form 'id=1,2,3', or an empty string if there are
+	 *         no IDs.
 	 */
 	public String getString() {
-		StringBuffer sb = new StringBuffer();
-		if (ids.isEmpty()) {
+		if (ids.length == 0) {
 			return "";
 		}
+		StringBuilder sb = new StringBuilder(ids.length * 8);
 		sb.append(ConstraintPermissionResolver.IDS_PREFIX).append("=");
-		for (Long l : ids) {
+		for (long l : ids) {
 			sb.append(l).append(ConstraintPermissionResolver.LIST_SEPARATOR);
 
 		}
@@ -117,4 +210,40 @@ public class IdConstraint implements Serializable {
 		return sb.toString();
 	}
 
+	/*
+	 * Ordered Set view of the ids, boxing on demand.
+	 */
+	private class IdSetView extends AbstractSet<Long> {
+
+		@Override
+		public Iterator<Long> iterator() {
+			return new Iterator<Long>() {
+				private int next = 0;
+
+				@Override
+				public boolean hasNext() {
+					return next < ids.length;
+				}
+
+				@Override
+				public Long next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return ids[next++];
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return ids.length;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof Long && IdConstraint.this.contains((Long) o);
+		}
+	}
+
 }
@@ -2,8 +2,11 @@ package com.researchspace.model.permissions;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.persistence.Column;
@@ -18,9 +21,9 @@ import org.hibernate.search.annotations.Field;
 import org.hibernate.search.annotations.Store;
 
 import com.researchspace.model.AbstractUserOrGroupImpl;
-import com.researchspace.model.Group;
 import com.researchspace.model.RoleInGroup;
 import com.researchspace.model.User;
+import com.researchspace.model.UserGroup;
 import com.researchspace.model.UserOrGroup;
 
 /**
@@ -37,6 +40,10 @@ public class RecordSharingACL implements Serializable {
 
 	private List<ACLElement> aclElements = new ArrayList<>();
 
+	// lazily built lookup of ACLElements by user or group unique name, without
+	// any role restriction suffix. Null if it needs to be rebuilt.
+	private transient Map<String, List<ACLElement>> principalIndex;
+
 	private boolean isRegeneratingList = false;
 
 	// to persist
@@ -96,6 +103,9 @@ public class RecordSharingACL implements Serializable {
 		if (!aclElements.contains(el)) {
 			added = aclElements.add(el);
 		}
+		if (added && principalIndex != null) {
+			indexElement(principalIndex, el);
+		}
 		if (added && !isRegeneratingList) { // prevents infinite cycles)
 			regenerateACLString();
 		}
@@ -110,6 +120,12 @@ public class RecordSharingACL implements Serializable {
 	 */
 	public boolean removeACLElement(ACLElement toRemove) {
 		if (aclElements.remove(toRemove)) {
+			if (principalIndex != null) {
+				List<ACLElement> forPrincipal = principalIndex.get(getPrincipalName(toRemove));
+				if (forPrincipal != null) {
+					forPrincipal.remove(toRemove);
+				}
+			}
 			regenerateACLString();
 			return true;
 		}
@@ -126,6 +142,7 @@ public class RecordSharingACL implements Serializable {
 	 */
 	public void clear() {
 		aclElements.clear();
+		principalIndex = null;
 		this.acl = null;
 	}
 
@@ -161,24 +178,27 @@ public class RecordSharingACL implements Serializable {
 	 *         otherwise.
 	 */
 	public boolean isPermitted(User user, PermissionType requestedAction) {
-
-		for (ACLElement el : aclElements) {
-			String uOrGrp = el.getUserOrGrpUniqueName();
-			// we have a straight match -
-			if (user.getUsername().equals(uOrGrp)) {
-				if (checkRequestedActionMatchesACL(requestedAction, el)) {
-					return true;
-				}
+		if (aclElements.isEmpty()) {
+			return false;
+		}
+		Map<String, List<ACLElement>> index = getPrincipalIndex();
+		// we have a straight match -
+		for (ACLElement el : index.getOrDefault(user.getUsername(), Collections.emptyList())) {
+			if (checkRequestedActionMatchesACL(requestedAction, el)) {
+				return true;
 			}
-			// otherwise it might be a group permission
-			for (Group group : user.getGroups()) {
-				if (!uOrGrp.startsWith(group.getUniqueName())) {
-					continue;
-				}
+		}
+		// otherwise it might be a group permission
+		for (UserGroup ug : user.getUserGroups()) {
+			List<ACLElement> groupElements = index.get(ug.getGroup().getUniqueName());
+			if (groupElements == null) {
+				continue;
+			}
+			for (ACLElement el : groupElements) {
 				// now e check if group permissions is restricted by role in
 				// group
 				Set<RoleInGroup> rig = el.getRoles();
-				if (rig.isEmpty() || rig.contains(group.getRoleForUser(user))) {
+				if (rig.isEmpty() || rig.contains(ug.getRoleInGroup())) {
 					if (checkRequestedActionMatchesACL(requestedAction, el)) {
 						return true;
 					}
@@ -188,6 +208,28 @@ public class RecordSharingACL implements Serializable {
 		return false;
 	}
 
+	private Map<String, List<ACLElement>> getPrincipalIndex() {
+		if (principalIndex == null) {
+			Map<String, List<ACLElement>> index = new HashMap<>();
+			for (ACLElement el : aclElements) {
+				indexElement(index, el);
+			}
+			principalIndex = index;
+		}
+		return principalIndex;
+	}
+
+	private static void indexElement(Map<String, List<ACLElement>> index, ACLElement el) {
+		index.computeIfAbsent(getPrincipalName(el), k -> new ArrayList<>(2)).add(el);
+	}
+
+	// strips any role restriction, e.g. 'group[PI]' -> 'group'
+	private static String getPrincipalName(ACLElement el) {
+		String name = el.getUserOrGrpUniqueName();
+		int roleStart = name.indexOf('[');
+		return roleStart == -1 ? name : name.substring(0, roleStart);
+	}
+
 	/**
 	 * Removes all ACLelements for a particular user
 	 * 
@@ -202,6 +244,7 @@ public class RecordSharingACL implements Serializable {
 			}
 		}
 		aclElements.removeAll(toRemove);
+		principalIndex = null;
 		regenerateACLString();
 		return toRemove;
 	}
@@ -216,13 +259,13 @@ public class RecordSharingACL implements Serializable {
 			}
 		}
 		aclElements.removeAll(toRemove);
+		principalIndex = null;
 		regenerateACLString();
 		return toRemove;
 	}
 
 	private boolean checkRequestedActionMatchesACL(PermissionType requestedAction, ACLElement el) {
-		ConstraintBasedPermission cbp = pr.resolvePermission(el.getPermString());
-		return cbp.matchActions(requestedAction);
+		return el.permitsAction(requestedAction);
 	}
 
 	/**
@@ -250,11 +293,12 @@ public class RecordSharingACL implements Serializable {
 
 	private void regenerateACLList() {
 		aclElements.clear();
+		principalIndex = null;
 		if (acl != null) {
 			String[] aclStrings = StringUtils.split(acl, ACL_ELEMENT_DELIMITER);
 			for (String aclString : aclStrings) {
 				String[] nameValuePair = StringUtils.split(aclString, "=");
-				ConstraintBasedPermission perm = pr.resolvePermission(nameValuePair[1]);
+				ConstraintBasedPermission perm = pr.resolveSharedPermission(nameValuePair[1]);
 				ACLElement aclE = new ACLElement(nameValuePair[0], perm);
 				aclElements.add(aclE);
 			}
@@ -332,6 +376,7 @@ public class RecordSharingACL implements Serializable {
 	public void unionWith(RecordSharingACL other) {
 		List<ACLElement> sum = ListUtils.sum(this.aclElements, other.aclElements);
 		this.aclElements = sum;
+		principalIndex = null;
 		regenerateACLString();
 	}
 
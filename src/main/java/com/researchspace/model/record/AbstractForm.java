@@ -14,9 +14,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -386,7 +384,7 @@ public abstract class AbstractForm implements Serializable, UniquelyIdentifiable
 		// sort/order annotatios seem ineffectual. if this is removed, tests
 		// fail
 		try {
-			Collections.sort(fieldForms);
+			sortFieldFormsIfNeeded();
 		} catch (Exception e) {
 			try {
 				logger.error("Unexpected exception for form id {}, {} - {}", getId(), getName(), e.getMessage());
@@ -398,14 +396,31 @@ public abstract class AbstractForm implements Serializable, UniquelyIdentifiable
 	}
 
 	@Transient
-	private SortedSet<FieldForm> getActiveFieldForms() {
-		TreeSet<FieldForm> sorted = new TreeSet<>();
+	private List<FieldForm> getActiveFieldForms() {
+		List<FieldForm> active = new ArrayList<>();
 		for (FieldForm field : getFieldForms()) {
 			if (!field.isDeleted()) {
-				sorted.add(field);
+				active.add(field);
 			}
 		}
-		return sorted;
+		return active;
+	}
+
+	/*
+	 * Field forms are kept in order as they are added and removed, but column
+	 * indices can be changed directly, and Hibernate may load them out of
+	 * order. Sorting only when needed is cheap in the usual case, and doesn't
+	 * rewrite (and so dirty) a persistent collection.
+	 */
+	private void sortFieldFormsIfNeeded() {
+		FieldForm previous = null;
+		for (FieldForm ff : fieldForms) {
+			if (previous != null && previous.compareTo(ff) > 0) {
+				Collections.sort(fieldForms);
+				return;
+			}
+			previous = ff;
+		}
 	}
 
 	/*
@@ -428,9 +443,14 @@ public abstract class AbstractForm implements Serializable, UniquelyIdentifiable
 			return false;
 		}
 		ft.setForm(this);
-		boolean rc = fieldForms.add(ft);
-		Collections.sort(fieldForms);
-		return rc;
+		sortFieldFormsIfNeeded();
+		// after any equal elements, as a stable sort would put it
+		int index = fieldForms.size();
+		while (index > 0 && fieldForms.get(index - 1).compareTo(ft) > 0) {
+			index--;
+		}
+		fieldForms.add(index, ft);
+		return true;
 	}
 
 	/**
@@ -454,11 +474,8 @@ public abstract class AbstractForm implements Serializable, UniquelyIdentifiable
 	 */
 	public boolean removeFieldForm(FieldForm ft) {
 		ft.setForm(this);
-		boolean rc = fieldForms.remove(ft);
-		if (rc) {
-			Collections.sort(fieldForms);
-		}
-		return rc;
+		// removal keeps the remaining field forms in order
+		return fieldForms.remove(ft);
 	}
 
 	@Embedded
@@ -733,7 +750,6 @@ public abstract class AbstractForm implements Serializable, UniquelyIdentifiable
 			throw new IllegalArgumentException(String.format("fieldFormIds should have %d values "
 					+ " but only has %d" ,getNumActiveFields(), fieldFormIds.size()));
 		}
-		getActiveFieldForms().stream().map(t -> t.getId()).collect(Collectors.toList());
 		List<Long> knownIds = getActiveFieldForms().stream().map(FieldForm::getId).collect(toList());
 		for (Long incomingId : fieldFormIds) {
 			if (!knownIds.contains(incomingId)) {
@@ -0,0 +1,190 @@
+package com.researchspace.model.record;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optional, thread-bound cache of the ancestor closure of records, i.e. the
+ * result of {@link BaseRecord#getAllAncestors()}. Useful for the duration of
+ * a single request, where the same records' ancestors are queried repeatedly,
+ * e.g. by {@link BaseRecord#isInvisible()} and sharing code.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * try (AncestorCache cache = AncestorCache.open()) {
+ * 	// ancestor queries on this thread are cached
+ * }
+ * </pre>
+ *
+ * Opening a cache while one is already open on the thread joins the existing
+ * cache, which is only closed when the outermost scope is closed.
+ * <p>
+ * The whole cache is cleared whenever a parent-child relation changes in this
+ * thread through {@link Folder#addChild} or {@link Folder#removeChild} (and
+ * hence {@link BaseRecord#move}). Changes made by other means, e.g. by
+ * another thread or directly in the database, are not detected. Records are
+ * keyed by identity, so this should only be used within a single Hibernate
+ * session.
+ */
+public final class AncestorCache implements AutoCloseable {
+
+	private static final ThreadLocal<AncestorCache> CURRENT = new ThreadLocal<>();
+
+	/**
+	 * Loads folders by ID, e.g. with a single database query.
+	 */
+	@FunctionalInterface
+	public interface FolderLoader {
+		/**
+		 * @param ids
+		 * @return the folders found, by ID
+		 */
+		Map<Long, Folder> loadFolders(Collection<Long> ids);
+	}
+
+	private final Map<BaseRecord, Set<Folder>> ancestors = new IdentityHashMap<>();
+	private final Map<Long, Folder> foldersById = new HashMap<>();
+	private FolderLoader folderLoader;
+	private int openCount = 1;
+	private long hits;
+	private long misses;
+
+	private AncestorCache() {
+	}
+
+	/**
+	 * Opens a cache scope for the current thread, or joins an already open one.
+	 *
+	 * @return the {@link AncestorCache} for this thread, to be closed when the
+	 *         request is finished.
+	 */
+	public static AncestorCache open() {
+		AncestorCache current = CURRENT.get();
+		if (current != null) {
+			current.openCount++;
+			return current;
+		}
+		current = new AncestorCache();
+		CURRENT.set(current);
+		return current;
+	}
+
+	/**
+	 * Opens a cache scope for the current thread, or joins an already open
+	 * one, that loads folders in lineages with <code>folderLoader</code>. A
+	 * joined cache keeps any loader it already has.
+	 *
+	 * @param folderLoader
+	 * @return the {@link AncestorCache} for this thread, to be closed when the
+	 *         request is finished.
+	 */
+	public static AncestorCache open(FolderLoader folderLoader) {
+		AncestorCache current = open();
+		if (current.folderLoader == null) {
+			current.folderLoader = folderLoader;
+		}
+		return current;
+	}
+
+	/**
+	 * Closes this scope; the cache is discarded once all scopes on this thread
+	 * are closed.
+	 */
+	@Override
+	public void close() {
+		if (--openCount == 0) {
+			ancestors.clear();
+			foldersById.clear();
+			if (CURRENT.get() == this) {
+				CURRENT.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return the cache open on this thread, or <code>null</code> if there is
+	 *         none
+	 */
+	static AncestorCache current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Clears any cache open on this thread, after the folder tree has changed.
+	 */
+	static void invalidateCurrent() {
+		AncestorCache current = CURRENT.get();
+		if (current != null) {
+			current.ancestors.clear();
+		}
+	}
+
+	Set<Folder> get(BaseRecord record) {
+		Set<Folder> cached = ancestors.get(record);
+		if (cached != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return cached;
+	}
+
+	void put(BaseRecord record, Set<Folder> recordAncestors) {
+		ancestors.put(record, recordAncestors);
+	}
+
+	/**
+	 * Gets folders by ID, loading any not loaded before in one call to the
+	 * folder loader.
+	 *
+	 * @param ids
+	 * @return the folders, in the order of <code>ids</code>, or
+	 *         <code>null</code> if there's no folder loader or a folder
+	 *         wasn't found
+	 */
+	List<Folder> getFolders(List<Long> ids) {
+		if (folderLoader == null) {
+			return null;
+		}
+		List<Long> missing = new ArrayList<>();
+		for (Long id : ids) {
+			if (!foldersById.containsKey(id)) {
+				missing.add(id);
+			}
+		}
+		if (!missing.isEmpty()) {
+			foldersById.putAll(folderLoader.loadFolders(missing));
+		}
+		List<Folder> folders = new ArrayList<>(ids.size());
+		for (Long id : ids) {
+			Folder folder = foldersById.get(id);
+			if (folder == null) {
+				return null;
+			}
+			folders.add(folder);
+		}
+		return folders;
+	}
+
+	/**
+	 * @return the number of ancestor queries answered from this cache
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of ancestor queries that had to traverse the folder
+	 *         tree
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+}
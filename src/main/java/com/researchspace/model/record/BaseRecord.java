@@ -25,18 +25,23 @@ import com.researchspace.model.permissions.RecordPermissionAdapter;
 import com.researchspace.model.permissions.RecordSharingACL;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -52,12 +57,14 @@ import javax.persistence.InheritanceType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.PrePersist;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.persistence.Transient;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.Hibernate;
 import org.hibernate.LazyInitializationException;
 import org.hibernate.envers.Audited;
 import org.hibernate.envers.NotAudited;
@@ -79,7 +86,8 @@ import org.hibernate.search.annotations.Store;
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
 @AuditTrailData(auditDomain = AuditDomain.RECORD)
-@Table(indexes = {@Index(columnList = "deleted", name = "isDeleted")})
+@Table(indexes = {@Index(columnList = "deleted", name = "isDeleted"),
+        @Index(columnList = "lineage", name = "lineage")})
 public abstract class BaseRecord
         implements Comparable<BaseRecord>, Serializable, IFieldLinkableElement, PermissionsAdaptable, IRSpaceDoc, IDescribable {
 
@@ -124,9 +132,29 @@ public abstract class BaseRecord
     @Transient
     public static final String TEMPLATE_TYTE_EXT = "templatex";
     /**
-     *
+     * Delimits folder IDs in a record's lineage, see {@link #getLineage()}
      */
     public static final String LINEAGE_DELIMITER = "|";
+    /**
+     * Follows the ID of a folder with several parents in a record's lineage,
+     * see {@link #getLineage()}
+     */
+    public static final String MULTIPLE_PARENTS_MARKER = "*";
+    /**
+     * Max DB varchar length of a lineage; longer lineages are not stored.
+     */
+    public static final int MAX_LINEAGE_LENGTH = 500;
+    /*
+     * Incremented whenever the lineage of a folder's descendants changes,
+     * after which the lineages in memory of records below it may be out of
+     * date. The old
+     * lineage prefixes of the most recent changes are kept by epoch, so that
+     * lineages from before a change can be checked against them.
+     */
+    private static final AtomicLong LINEAGE_EPOCH = new AtomicLong(1);
+    private static final ConcurrentNavigableMap<Long, String> LINEAGE_CHANGES = new ConcurrentSkipListMap<>();
+    private static final int MAX_LINEAGE_CHANGES = 1000;
+    private static final long UNTRUSTED_EPOCH = 0;
     /**
      * Default filter does no filtering - always returns <code>true</code>.
      */
@@ -138,6 +166,10 @@ public abstract class BaseRecord
     private static final long serialVersionUID = -532434205358457270L;
     private static final String TYPE_DELIMITER = ":";
     protected Set<RecordToFolder> parents = new HashSet<>();
+    private String lineage = LINEAGE_DELIMITER;
+    // the LINEAGE_EPOCH when the lineage was loaded or computed
+    private transient long lineageEpoch = LINEAGE_EPOCH.get();
+    private transient List<LineageUpdate> descendantLineageUpdates;
     protected boolean deleted = false;
     private boolean fromImport;
     private String originalCreatorUsername;
@@ -194,6 +226,237 @@ public abstract class BaseRecord
         return originalCreatorUsername;
     }
 
+    /**
+     * The IDs of the folders in this record's owner parent chain, i.e.
+     * following {@link #getOwnerParent()} up to the top-level folder, as a
+     * materialized path: e.g. <code>|1|5|9|</code> for a record in folder 9,
+     * in folder 5, in root folder 1. A folder that has several parents, e.g.
+     * one that is also in a shared folder, is marked with
+     * {@link #MULTIPLE_PARENTS_MARKER} after its ID, e.g. <code>|1|5*|9|</code>.
+     * A record with no parents has lineage <code>|</code>.
+     * <p>
+     * This is maintained by {@link Folder#addChild(BaseRecord, User)} and
+     * {@link Folder#removeChild(BaseRecord)}, and filled in when a record is
+     * saved. When the lineage of a folder's descendants changes, the change is
+     * made to the descendants loaded in memory; the stored lineages of the
+     * others are updated with {@link #pollDescendantLineageUpdates()}.
+     * Lineages in memory that were loaded before such a change aren't used,
+     * and ancestor queries use the parents instead.
+     * <p>
+     * Lets {@link #isDescendantOf(BaseRecord)} and
+     * {@link #getParentHierarchyForUser(User)} answer without loading the
+     * folders in between, and descendants be found with a prefix query.
+     *
+     * @return the lineage, or <code>null</code> if not known, e.g. if an
+     * ancestor was not yet saved, or for records saved before lineages were
+     * maintained.
+     */
+    @Column(nullable = true, length = MAX_LINEAGE_LENGTH)
+    @NotAudited
+    public String getLineage() {
+        return lineage;
+    }
+
+    // for hibernate; otherwise only set by the folder tree
+    @SuppressWarnings("unused")
+    private void setLineage(String lineage) {
+        this.lineage = lineage;
+        this.lineageEpoch = LINEAGE_EPOCH.get();
+    }
+
+    /**
+     * The IDs in {@link #getLineage()}, from the top-level folder down to this
+     * record's owner parent. Useful for loading the parent chain in a single
+     * query.
+     *
+     * @return the IDs, or <code>null</code> if the lineage is not known.
+     */
+    @Transient
+    public List<Long> getLineageIds() {
+        if (lineage == null) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (String id : StringUtils.split(lineage, LINEAGE_DELIMITER)) {
+            ids.add(Long.valueOf(StringUtils.removeEnd(id, MULTIPLE_PARENTS_MARKER)));
+        }
+        return ids;
+    }
+
+    /**
+     * Gets, and clears, the changes to make to the stored lineages of
+     * descendants of this folder, after its lineage changed. These must be
+     * applied in the same transaction as the change, e.g. by running each
+     * {@link LineageUpdate#getHql()}, as descendants that weren't loaded
+     * otherwise keep their old lineage.
+     *
+     * @return the updates, in the order they must be applied; empty if there
+     * are none
+     */
+    public List<LineageUpdate> pollDescendantLineageUpdates() {
+        if (descendantLineageUpdates == null) {
+            return Collections.emptyList();
+        }
+        List<LineageUpdate> updates = descendantLineageUpdates;
+        descendantLineageUpdates = null;
+        return updates;
+    }
+
+    /*
+     * Whether the lineage is known, and no folder in it has changed lineage
+     * since it was loaded or computed, so it can be used without checking
+     * parents.
+     */
+    boolean hasCurrentLineage() {
+        if (lineage == null || lineageEpoch == UNTRUSTED_EPOCH) {
+            return false;
+        }
+        long current = LINEAGE_EPOCH.get();
+        if (lineageEpoch >= current) {
+            return true;
+        }
+        if (current - lineageEpoch > MAX_LINEAGE_CHANGES) {
+            // changes since then may no longer be kept
+            return false;
+        }
+        for (String changedPrefix : LINEAGE_CHANGES.subMap(lineageEpoch, false, current, true).values()) {
+            if (lineage.startsWith(changedPrefix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void recordLineageChange(String oldPrefix) {
+        synchronized (LINEAGE_CHANGES) {
+            // added before the epoch is published, so readers of the epoch see it
+            long epoch = LINEAGE_EPOCH.get() + 1;
+            LINEAGE_CHANGES.put(epoch, oldPrefix);
+            LINEAGE_CHANGES.headMap(epoch - MAX_LINEAGE_CHANGES).clear();
+            LINEAGE_EPOCH.set(epoch);
+        }
+    }
+
+    /*
+     * Recomputes the lineage after the parents of this record have changed,
+     * and propagates any change to loaded descendants whose lineage goes
+     * through this folder.
+     *
+     * oldDescendantPrefix is the prefix of the lineages of this folder's
+     * children before the change, see descendantPrefix().
+     */
+    void updateLineage(String oldDescendantPrefix) {
+        Folder parent = getLineageParent();
+        boolean parentCurrent = parent == null || parent.hasCurrentLineage();
+        String updated = computeLineage(parent);
+        boolean changed = !Objects.equals(updated, lineage);
+        lineage = updated;
+        String newDescendantPrefix = descendantPrefix();
+        boolean descendantsChanged = !Objects.equals(oldDescendantPrefix, newDescendantPrefix);
+        if (descendantsChanged && oldDescendantPrefix != null) {
+            // descendants not loaded keep the old lineage until the update is applied
+            if (descendantLineageUpdates == null) {
+                descendantLineageUpdates = new ArrayList<>();
+            }
+            descendantLineageUpdates.add(new LineageUpdate(oldDescendantPrefix, newDescendantPrefix));
+            recordLineageChange(oldDescendantPrefix);
+        }
+        if (parentCurrent) {
+            lineageEpoch = LINEAGE_EPOCH.get();
+        } else if (changed) {
+            lineageEpoch = UNTRUSTED_EPOCH;
+        }
+        if (descendantsChanged) {
+            updateLoadedChildLineages();
+        }
+    }
+
+    void updateLineage() {
+        updateLineage(descendantPrefix());
+    }
+
+    /*
+     * The lineage of this folder's children, or null if not known or this
+     * isn't a folder.
+     */
+    String descendantPrefix() {
+        if (!isFolder() || lineage == null || getId() == null) {
+            return null;
+        }
+        String marker = parents.size() > 1 ? MULTIPLE_PARENTS_MARKER : "";
+        return lineage + getId() + marker + LINEAGE_DELIMITER;
+    }
+
+    /*
+     * Fills in a lineage that couldn't be computed before the parent was
+     * saved. Parents are saved first, so this is done before insert, saving an
+     * update afterwards.
+     */
+    @PrePersist
+    void updateLineageOnPersist() {
+        if (lineage == null) {
+            Folder parent = getLineageParent();
+            lineage = computeLineage(parent);
+            lineageEpoch = parent == null || parent.hasCurrentLineage() ? LINEAGE_EPOCH.get() : UNTRUSTED_EPOCH;
+        }
+    }
+
+    /*
+     * Doesn't load the children, so that moving a folder doesn't load the
+     * subtree below it; descendants not loaded are updated through
+     * pollDescendantLineageUpdates.
+     */
+    private void updateLoadedChildLineages() {
+        if (!isFolder() || getId() == null) {
+            return;
+        }
+        Set<RecordToFolder> children = ((Folder) this).getChildren();
+        if (!Hibernate.isInitialized(children)) {
+            return;
+        }
+        for (RecordToFolder child : children) {
+            BaseRecord record = child.getRecord();
+            if (record.getLineage() == null || endsWithFolder(record.getLineage(), getId())) {
+                record.updateLineage();
+            }
+        }
+    }
+
+    private static boolean endsWithFolder(String lineage, Long folderId) {
+        String id = LINEAGE_DELIMITER + folderId;
+        return lineage.endsWith(id + LINEAGE_DELIMITER)
+                || lineage.endsWith(id + MULTIPLE_PARENTS_MARKER + LINEAGE_DELIMITER);
+    }
+
+    private String computeLineage(Folder parent) {
+        if (!hasParents()) {
+            return LINEAGE_DELIMITER;
+        }
+        String computed = parent == null ? null : parent.descendantPrefix();
+        return computed == null || computed.length() > MAX_LINEAGE_LENGTH ? null : computed;
+    }
+
+    /*
+     * The owner parent, preferring the one in the current lineage if there
+     * are several, so that the lineage is stable.
+     */
+    private Folder getLineageParent() {
+        Folder ownerParent = null;
+        for (RecordToFolder rtf : parents) {
+            Folder folder = rtf.getFolder();
+            if (folder.isSharedFolder()) {
+                continue;
+            }
+            if (lineage != null && folder.getId() != null && endsWithFolder(lineage, folder.getId())) {
+                return folder;
+            }
+            if (ownerParent == null) {
+                ownerParent = folder;
+            }
+        }
+        return ownerParent;
+    }
+
     // for hibernate, must be immutable
     @SuppressWarnings("unused")
     private void setOriginalCreatorUsername(String originalCreator) {
@@ -469,16 +732,30 @@ public abstract class BaseRecord
      */
     @Transient
     public List<Folder> getAllAncestors() {
-        List<Folder> ancestors = new ArrayList<>();
-        doGetAllAncestors(ancestors);
+        return new ArrayList<>(getAncestorClosure());
+    }
+
+    /*
+     * Gets the ancestors of this record, from the AncestorCache if one is open.
+     * The returned set must not be modified.
+     */
+    private Set<Folder> getAncestorClosure() {
+        AncestorCache cache = AncestorCache.current();
+        Set<Folder> ancestors = cache != null ? cache.get(this) : null;
+        if (ancestors == null) {
+            ancestors = new LinkedHashSet<>();
+            doGetAllAncestors(ancestors);
+            if (cache != null) {
+                cache.put(this, ancestors);
+            }
+        }
         return ancestors;
     }
 
-    protected void doGetAllAncestors(List<Folder> ancestors) {
-        Set<Folder> flders = getFolders();
-        for (Folder parent : flders) {
-            if (!ancestors.contains(parent)) {
-                ancestors.add(parent);
+    protected void doGetAllAncestors(Set<Folder> ancestors) {
+        for (RecordToFolder rtf : getParents()) {
+            Folder parent = rtf.getFolder();
+            if (ancestors.add(parent)) {
                 parent.doGetAllAncestors(ancestors);
             }
         }
@@ -511,8 +788,7 @@ public abstract class BaseRecord
         if (includeSelf && predicate.test(this)) {
             return true;
         }
-        List<Folder> ancestors = getAllAncestors();
-        for (Folder ancestor : ancestors) {
+        for (Folder ancestor : getAncestorClosure()) {
             if (predicate.test(ancestor)) {
                 return true;
             }
@@ -619,7 +895,10 @@ public abstract class BaseRecord
 
     /**
      * Boolean test for whether this Record is a descendant of the argument
-     * Record.
+     * Record. This walks up single parents only, stopping at a record with
+     * several parents. It's answered from the lineage, without loading the
+     * folders in between, if the lineage is current, otherwise by walking up
+     * the parents.
      *
      * @param record A non-<code>null</code> Record
      * @return <code>true</code> if this record is a descendant of the other
@@ -633,6 +912,9 @@ public abstract class BaseRecord
         if (this.equals(record)) {
             return false;
         }
+        if (record.getId() != null && hasCurrentLineage()) {
+            return hasSingleParent() && isInLineage(record.getId());
+        }
         BaseRecord parent = getParent();
         while (parent != null) {
             if (parent.equals(record)) {
@@ -643,6 +925,25 @@ public abstract class BaseRecord
         return false;
     }
 
+    /*
+     * Whether the folder is in the lineage, below any folder with several
+     * parents, as getParent() would find it.
+     */
+    private boolean isInLineage(Long folderId) {
+        String id = folderId.toString();
+        String[] folders = StringUtils.split(lineage, LINEAGE_DELIMITER);
+        for (int i = folders.length - 1; i >= 0; i--) {
+            boolean severalParents = folders[i].endsWith(MULTIPLE_PARENTS_MARKER);
+            if (id.equals(StringUtils.removeEnd(folders[i], MULTIPLE_PARENTS_MARKER))) {
+                return true;
+            }
+            if (severalParents) {
+                return false;
+            }
+        }
+        return false;
+    }
+
     /**
      * Sets the values belonging to all Records: Name, Type, ACL, Owner.
      * Ignores history and temp files and comments
@@ -1002,8 +1303,7 @@ public abstract class BaseRecord
             return true;
             // if it's a gallery folder we want to hide from workspace.
         } else if (hasType(RecordType.FOLDER)) {
-            List<Folder> ancestors = getAllAncestors();
-            return ancestors.stream().anyMatch(f -> f.hasType(RecordType.ROOT_MEDIA));
+            return hasAncestorOfType(RecordType.ROOT_MEDIA, false);
         } else {
             return false;
         }
@@ -1096,57 +1396,88 @@ public abstract class BaseRecord
 
     @Transient
     public RSPath getShortestPathToParent(Predicate<BaseRecord> target, FolderTraversalTerminator terminator) {
-        Queue<BaseRecord> queue = new LinkedList<>();
-        queue.add(this);
-
-        Set<BaseRecord> visited = new HashSet<>();
-        // stores the path used to ascend the hierarchy
-        Map<BaseRecord, BaseRecord> predecessor = new HashMap<>();
-        BaseRecord terminal = null;
-        // keeps track of distances( and hence tracks seen)
-        // does BFS over parents
-        // (http://ldc.usb.ve/~gabro/teaching/CI2693/lecture11.pdf)
-        // first path to userRoot is shortest.
-        Map<BaseRecord, Integer> distances = new HashMap<>();
-        distances.put(this, 0); // we may not need distances since is BFS with
-        // no cycles.
-        while (!queue.isEmpty()) {
-            BaseRecord curr = queue.poll();
-            if (!visited.contains(curr)) {
-                visited.add(curr);
-                if (target.test(curr)) {
-                    terminal = curr;
-                    break; // or perhaps don't always want shortest path
-                }
-                for (Folder parent : curr.getParentFolders()) {
-                    if (!terminator.terminate(curr, parent)) {
-                        queue.add(parent);
-                        if (distances.get(parent) == null) {
-                            distances.put(parent, distances.get(curr) + 1);
-                            predecessor.put(parent, curr);
-                        }
-                    } else {
-                        terminal = curr;
-                    }
-                }
-            }
-        }
-        // e.g., this will be null if search up to user root was blocked - e.g.,
-        // by delettion.
-        if (terminal == null) {
-            return new RSPath(new ArrayList<>());
-        }
-        return new RSPath(getPath(terminal, predecessor));
+        return ParentPathFinder.forCurrentThread().getShortestPathToParent(this, target, terminator);
     }
 
     /**
-     * Does BFS to find shortest path to
+     * Finds the shortest path from the user's root folder to this record. If
+     * this record's lineage is current, starts at the root folder, and no
+     * record on it has several parents, that is the only path, so is
+     * followed, and there's no terminator; its folders are loaded in one go
+     * if an {@link AncestorCache} with a {@link AncestorCache.FolderLoader} is
+     * open. Otherwise does BFS to find the shortest path.
      *
      * @param u
      * @return List of nodes in parent->child order.
      */
     @Transient
     public RSPath getParentHierarchyForUser(User u, FolderTraversalTerminator terminator) {
+        Folder rootFolder = getInitializedRootFolder(u);
+        if (terminator == NULL_TERMINATOR) {
+            RSPath lineagePath = getLineagePathTo(rootFolder);
+            if (lineagePath != null) {
+                return lineagePath;
+            }
+        }
+        return getShortestPathToParent(f -> f.equals(rootFolder), terminator);
+    }
+
+    /*
+     * Follows a current lineage from rootFolder, if that's where it starts and
+     * it's the only path, resolving its folders through the open
+     * AncestorCache, or else by walking up the parents. Returns null, for a
+     * full search, if the lineage can't be followed.
+     */
+    private RSPath getLineagePathTo(Folder rootFolder) {
+        if (rootFolder == null || !hasCurrentLineage() || lineage.contains(MULTIPLE_PARENTS_MARKER)) {
+            return null;
+        }
+        List<Long> ids = getLineageIds();
+        if (ids.isEmpty() || !ids.get(0).equals(rootFolder.getId()) || !hasSingleParent()) {
+            return null;
+        }
+        List<BaseRecord> path = new ArrayList<>(ids.size() + 1);
+        AncestorCache cache = AncestorCache.current();
+        List<Folder> folders = cache == null ? null : cache.getFolders(ids);
+        if (folders != null) {
+            path.addAll(folders);
+            path.add(this);
+            return new RSPath(path);
+        }
+        BaseRecord current = this;
+        path.add(current);
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            Set<RecordToFolder> currentParents = current.getParents();
+            if (currentParents.size() != 1) {
+                return null;
+            }
+            Folder parent = currentParents.iterator().next().getFolder();
+            if (!ids.get(i).equals(parent.getId())) {
+                return null;
+            }
+            path.add(parent);
+            current = parent;
+        }
+        Collections.reverse(path);
+        return new RSPath(path);
+    }
+
+    /**
+     * Batch version of {@link #getParentHierarchyForUser(User)}, that ascends
+     * the folder tree shared by the records only once.
+     *
+     * @param records
+     * @param u
+     * @return A Map of record to its path, in the iteration order of
+     * <code>records</code>
+     * @see ParentPathFinder#getParentHierarchiesForUser(Collection, User)
+     */
+    public static Map<BaseRecord, RSPath> getParentHierarchiesForUser(Collection<? extends BaseRecord> records,
+                                                                      User u) {
+        return ParentPathFinder.forCurrentThread().getParentHierarchiesForUser(records, u);
+    }
+
+    static Folder getInitializedRootFolder(User u) {
         Folder rootFolder = u.getRootFolder();
         try {
             /*
@@ -1160,25 +1491,13 @@ public abstract class BaseRecord
             throw new RuntimeException("can't load properties of user's root folder. "
                     + "was the user loaded from db in the same hibernate session?", e);
         }
-
-        return getShortestPathToParent(f -> f.equals(rootFolder), terminator);
+        return rootFolder;
     }
 
     protected boolean isUserRoot(User u, BaseRecord curr) {
         return curr.isFolder() && ((Folder) curr).isRootFolder() && curr.getOwner().equals(u);
     }
 
-    private List<BaseRecord> getPath(BaseRecord key, Map<BaseRecord, BaseRecord> predecessor) {
-        List<BaseRecord> parents = new ArrayList<>();
-        parents.add(key);
-        while (predecessor.get(key) != null) {
-            BaseRecord val = predecessor.get(key);
-            parents.add(val);
-            key = val;
-        }
-        return parents;
-    }
-
     public Long getIconId() {
         return iconId;
     }
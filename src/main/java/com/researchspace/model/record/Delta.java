@@ -2,6 +2,7 @@ package com.researchspace.model.record;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -23,6 +24,12 @@ public class Delta implements Serializable {
 	 * 
 	 */
 	private static final long serialVersionUID = 7896372951779080258L;
+
+	/**
+	 * Maximum length of the persisted delta string.
+	 */
+	public static final int MAX_DELTA_STRING_LENGTH = 2000;
+
 	private String deltaString;
 
 	@Override
@@ -109,6 +116,31 @@ public class Delta implements Serializable {
 		this.deltaString = _getChange();
 	}
 
+	/**
+	 * Adds several messages at once, building the delta string once. If adding
+	 * them all would make the delta string longer than
+	 * {@link #MAX_DELTA_STRING_LENGTH}, the single <code>compacted</code>
+	 * message is added instead.
+	 * 
+	 * @param msgs
+	 * @param compacted
+	 *            a message summarising all of <code>msgs</code>
+	 */
+	void addDeltaMsgs(Collection<String> msgs, String compacted) {
+		int length = getDeltaString().length();
+		for (String msg : msgs) {
+			if (!deltaMsges.contains(msg)) {
+				length += msg.length() + 1;
+			}
+		}
+		if (length > MAX_DELTA_STRING_LENGTH) {
+			deltaMsges.add(compacted);
+		} else {
+			deltaMsges.addAll(msgs);
+		}
+		this.deltaString = _getChange();
+	}
+
 	/*
 	 * Used for document copying.
 	 * 
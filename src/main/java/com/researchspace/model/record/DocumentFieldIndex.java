@@ -0,0 +1,114 @@
+package com.researchspace.model.record;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.researchspace.model.field.Field;
+import com.researchspace.model.field.FieldType;
+
+/**
+ * Transient lookup of a document's fields by name and by type, so that
+ * working through all fields of a large form doesn't need a scan of the field
+ * list for every field.
+ * <p>
+ * The index is built lazily from the document's field list. The document
+ * invalidates it when it adds or removes fields; changes of size made directly
+ * to the list are also noticed, but other direct changes to the list are not.
+ * A name that isn't found in the index, or whose indexed field now has
+ * another name, is looked for with a scan of the list, so that fields renamed
+ * through their form are still found.
+ */
+class DocumentFieldIndex {
+
+	private final List<Field> fields;
+	private final Map<String, Integer> positionByName = new HashMap<>();
+	private final Map<FieldType, List<Field>> byType = new EnumMap<>(FieldType.class);
+	private boolean built;
+	private int builtSize;
+
+	DocumentFieldIndex(List<Field> fields) {
+		this.fields = fields;
+	}
+
+	/**
+	 * @return whether this indexes the given list instance
+	 */
+	boolean isFor(List<Field> list) {
+		return fields == list;
+	}
+
+	/**
+	 * Marks the index as out of date, after the field list has changed.
+	 */
+	void invalidate() {
+		built = false;
+	}
+
+	/**
+	 * Gets the first field with the given name.
+	 *
+	 * @param name
+	 * @return the field, or <code>null</code> if there is none.
+	 */
+	Field getField(String name) {
+		ensureBuilt();
+		Integer position = positionByName.get(name);
+		if (position != null) {
+			Field field = fields.get(position);
+			if (Objects.equals(field.getName(), name)) {
+				return field;
+			}
+		}
+		return scan(name);
+	}
+
+	/**
+	 * Gets the fields of a type, in document order.
+	 *
+	 * @param type
+	 * @return an unmodifiable, possibly empty list.
+	 */
+	List<Field> getFieldsOfType(FieldType type) {
+		ensureBuilt();
+		return byType.getOrDefault(type, Collections.emptyList());
+	}
+
+	private Field scan(String name) {
+		int i = 0;
+		for (Field field : fields) {
+			if (Objects.equals(field.getName(), name)) {
+				positionByName.put(name, i);
+				return field;
+			}
+			i++;
+		}
+		return null;
+	}
+
+	private void ensureBuilt() {
+		if (!built || builtSize != fields.size()) {
+			rebuild();
+		}
+	}
+
+	private void rebuild() {
+		positionByName.clear();
+		byType.clear();
+		Map<FieldType, List<Field>> typed = new EnumMap<>(FieldType.class);
+		int i = 0;
+		for (Field field : fields) {
+			// first wins, as in a scan of the list
+			positionByName.putIfAbsent(field.getName(), i++);
+			typed.computeIfAbsent(field.getType(), t -> new ArrayList<>()).add(field);
+		}
+		typed.forEach((type, ofType) -> byType.put(type, Collections.unmodifiableList(ofType)));
+		builtSize = i;
+		built = true;
+	}
+
+}
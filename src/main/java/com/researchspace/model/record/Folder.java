@@ -19,8 +19,16 @@ import com.researchspace.model.audittrail.AuditTrailData;
 import com.researchspace.model.core.GlobalIdPrefix;
 import com.researchspace.model.core.RecordType;
 import com.researchspace.model.permissions.DefaultPermissionFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Predicate;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -296,10 +304,13 @@ public class Folder extends BaseRecord implements TaggableElnRecord {
 	RecordToFolder doAdd(BaseRecord child, User owner, boolean skipAddingToChildren) {
 		RecordToFolder newedge = new RecordToFolder(child, this, owner.getUsername());
 
+		String oldDescendantPrefix = child.descendantPrefix();
 		boolean addedP = child.parents.add(newedge);
 		if (!addedP) {
 			return null;
 		}
+		AncestorCache.invalidateCurrent();
+		child.updateLineage(oldDescendantPrefix);
 		boolean addedC = true;
 		if (!skipAddingToChildren) {
 			/* it can be skipped without any functional disruption (since hibernate recognizes the
@@ -358,7 +369,10 @@ public class Folder extends BaseRecord implements TaggableElnRecord {
 		}
 
 		if (toRemove != null) {
+			String oldDescendantPrefix = child.descendantPrefix();
 			boolean removedOK = child.getParents().remove(toRemove);
+			AncestorCache.invalidateCurrent();
+			child.updateLineage(oldDescendantPrefix);
 			/* try removing from children, but continue if recordToFolder is not there,
 			    which can happen if addChild() method was called with 'skipAddingToChildren=true' */
 			children.remove(toRemove);
@@ -384,6 +398,12 @@ public class Folder extends BaseRecord implements TaggableElnRecord {
 	 * Visitor-pattern method that iterates over the folder tree, calling the
 	 * <em>process()</em> method of the supplied
 	 * {@link RecordContainerProcessor} on each record and folder.
+	 * <p>
+	 * The tree is traversed depth-first, without recursion, so is not limited
+	 * by stack depth. Each folder is processed once, before its contents, even
+	 * if it is reachable by several paths; a folder's records are processed
+	 * before its subfolders are descended into. Records in several folders
+	 * are processed once per folder.
 	 * 
 	 * @param processor
 	 *            A non-null RecordContainerProcessor.
@@ -392,19 +412,123 @@ public class Folder extends BaseRecord implements TaggableElnRecord {
 		if (processor == null) {
 			throw new IllegalArgumentException("processor was null!");
 		}
-		boolean toContinue = processor.process(this);
-		if (!toContinue) {
+		Set<Folder> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		Deque<Folder> toProcess = new ArrayDeque<>();
+		List<Folder> subfolders = new ArrayList<>();
+		toProcess.push(this);
+		while (!toProcess.isEmpty()) {
+			Folder folder = toProcess.pop();
+			if (!visited.add(folder) || !processor.process(folder)) {
+				continue;
+			}
+			subfolders.clear();
+			for (RecordToFolder rtf : folder.getChildren()) {
+				BaseRecord child = rtf.getRecord();
+				if (child.isFolder()) {
+					subfolders.add((Folder) child);
+				} else {
+					processor.process(child);
+				}
+			}
+			// pushed in reverse so that they are processed in iteration order
+			for (int i = subfolders.size() - 1; i >= 0; i--) {
+				toProcess.push(subfolders.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Version of {@link #process(RecordContainerProcessor)} that processes
+	 * subfolders and batches of records in parallel, in <code>pool</code>, if
+	 * the processor is {@link RecordContainerProcessor#isThreadSafe()
+	 * thread-safe}. Otherwise, this is the same as
+	 * {@link #process(RecordContainerProcessor)}.
+	 * <p>
+	 * In parallel, each folder is still processed once, before its contents,
+	 * but there is no ordering between siblings or different subtrees. All
+	 * processing has completed when this method returns; if the processor
+	 * throws an exception, it is rethrown here, and processing of the
+	 * remaining tree may or may not have happened.
+	 * <p>
+	 * Folder children are accessed from pool threads, so the folder tree
+	 * should be fully loaded beforehand, rather than lazily loaded in a
+	 * Hibernate session.
+	 * 
+	 * @param processor
+	 *            A non-null RecordContainerProcessor.
+	 * @param pool
+	 *            A non-null ForkJoinPool
+	 */
+	public void process(RecordContainerProcessor processor, ForkJoinPool pool) {
+		if (processor == null) {
+			throw new IllegalArgumentException("processor was null!");
+		}
+		if (pool == null) {
+			throw new IllegalArgumentException("pool was null!");
+		}
+		if (!processor.isThreadSafe()) {
+			process(processor);
 			return;
 		}
-		for (RecordToFolder rtf : getChildren()) {
-			if (!rtf.getRecord().isFolder()) {
-				processor.process(rtf.getRecord());
-			}
+		Set<Folder> visited = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+		pool.invoke(new ProcessFolderTask(null, this, processor, visited));
+	}
+
+	/*
+	 * Processes a folder, and forks tasks for its contents. Being a
+	 * CountedCompleter, it completes when all its subtasks have, without
+	 * blocking pool threads or growing the stack with the depth of the tree.
+	 */
+	private static class ProcessFolderTask extends CountedCompleter<Void> {
+		private static final long serialVersionUID = 1L;
+		private static final int RECORD_BATCH_SIZE = 64;
+
+		private final transient Folder folder;
+		private final transient RecordContainerProcessor processor;
+		private final transient Set<Folder> visited;
+
+		ProcessFolderTask(CountedCompleter<?> parent, Folder folder, RecordContainerProcessor processor,
+				Set<Folder> visited) {
+			super(parent);
+			this.folder = folder;
+			this.processor = processor;
+			this.visited = visited;
 		}
-		for (BaseRecord child : getChildrens()) {
-			if (child.isFolder()) {
-				((Folder) child).process(processor);
+
+		@Override
+		public void compute() {
+			if (visited.add(folder) && processor.process(folder)) {
+				List<BaseRecord> records = new ArrayList<>();
+				for (RecordToFolder rtf : folder.getChildren()) {
+					BaseRecord child = rtf.getRecord();
+					if (child.isFolder()) {
+						addToPendingCount(1);
+						new ProcessFolderTask(this, (Folder) child, processor, visited).fork();
+					} else {
+						records.add(child);
+						if (records.size() == RECORD_BATCH_SIZE) {
+							forkRecords(records);
+							records = new ArrayList<>();
+						}
+					}
+				}
+				// process the last batch in this task
+				records.forEach(processor::process);
 			}
+			tryComplete();
+		}
+
+		private void forkRecords(List<BaseRecord> records) {
+			addToPendingCount(1);
+			new CountedCompleter<Void>(this) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public void compute() {
+					records.forEach(processor::process);
+					tryComplete();
+				}
+			}.fork();
 		}
 	}
 
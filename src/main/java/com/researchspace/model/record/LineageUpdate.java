@@ -0,0 +1,55 @@
+package com.researchspace.model.record;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.Value;
+
+/**
+ * A change to the stored lineages of all descendants of a folder, after the
+ * folder's own lineage changed, e.g. because it was moved. Only descendants
+ * loaded in memory are updated by the folder tree, so the rest must be
+ * updated in the database by running {@link #getHql()} with
+ * {@link #getParameters()}, in the same transaction as the change.
+ *
+ * @see BaseRecord#pollDescendantLineageUpdates()
+ */
+@Value
+public class LineageUpdate {
+
+	/**
+	 * Lineage prefix of the folder's descendants before the change
+	 */
+	private String oldPrefix;
+	/**
+	 * Lineage prefix of the folder's descendants after the change, or
+	 * <code>null</code> if their lineages are no longer known
+	 */
+	private String newPrefix;
+
+	/**
+	 * @return an HQL update of the lineages starting with the old prefix
+	 */
+	public String getHql() {
+		if (newPrefix == null) {
+			return "update BaseRecord set lineage = null where lineage like :oldPrefixPattern";
+		}
+		return "update BaseRecord set lineage = concat(:newPrefix, substring(lineage, :oldPrefixLength + 1))"
+				+ " where lineage like :oldPrefixPattern";
+	}
+
+	/**
+	 * @return the named parameters of {@link #getHql()}
+	 */
+	public Map<String, Object> getParameters() {
+		Map<String, Object> params = new HashMap<>();
+		// lineages only hold digits, '-', markers and delimiters, so need no escaping
+		params.put("oldPrefixPattern", oldPrefix + "%");
+		if (newPrefix != null) {
+			params.put("newPrefix", newPrefix);
+			params.put("oldPrefixLength", oldPrefix.length());
+		}
+		return params;
+	}
+
+}
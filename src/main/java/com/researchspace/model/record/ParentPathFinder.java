@@ -0,0 +1,359 @@
+package com.researchspace.model.record;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.researchspace.model.User;
+
+/**
+ * Reusable breadth-first search up the folder tree, used to find shortest
+ * paths from records to a parent folder.
+ * <p>
+ * Records are numbered as they are discovered, so that the search can work on
+ * primitive arrays rather than maps of records. Records with a database ID
+ * are identified by that ID, as in {@link BaseRecord#equals(Object)}.
+ * <p>
+ * {@link #getParentHierarchiesForUser(Collection, User)} resolves the paths
+ * of many records in one go, sharing the parts of the tree they have in
+ * common, so that e.g. paths for 1000 search hits in the same folder only
+ * ascend to the root folder once.
+ * <p>
+ * Instances keep their working arrays between calls, and are not
+ * thread-safe. {@link #forCurrentThread()} gives a reusable instance for the
+ * calling thread.
+ */
+public class ParentPathFinder {
+
+	private static final ThreadLocal<ParentPathFinder> THREAD_FINDER = ThreadLocal
+			.withInitial(ParentPathFinder::new);
+
+	private static final int INITIAL_CAPACITY = 32;
+	private static final int NONE = -1;
+	// distance-to-target values, besides actual distances
+	private static final int UNKNOWN = -1;
+	private static final int UNREACHABLE = -2;
+
+	private final NodeIndex index = new NodeIndex();
+	private BaseRecord[] nodes = new BaseRecord[INITIAL_CAPACITY];
+	// per-search state
+	private int[] predecessor = new int[INITIAL_CAPACITY];
+	private int[] depth = new int[INITIAL_CAPACITY];
+	private int[] visitedInSearch = new int[INITIAL_CAPACITY];
+	private int[] queue = new int[INITIAL_CAPACITY];
+	private int search = 0;
+	// state retained across searches in a batch
+	private int[] distanceToTarget = new int[INITIAL_CAPACITY];
+	private int[] nextTowardsTarget = new int[INITIAL_CAPACITY];
+	private boolean inUse = false;
+
+	/**
+	 * Gets an instance for use by the calling thread, which is reused by
+	 * subsequent calls unless it is still in use, e.g. by a predicate that
+	 * itself searches for paths.
+	 *
+	 * @return
+	 */
+	public static ParentPathFinder forCurrentThread() {
+		ParentPathFinder finder = THREAD_FINDER.get();
+		return finder.inUse ? new ParentPathFinder() : finder;
+	}
+
+	/**
+	 * Finds the shortest path from <code>start</code> to the nearest ancestor
+	 * matching <code>target</code>. See
+	 * {@link BaseRecord#getShortestPathToParent(Predicate, FolderTraversalTerminator)}.
+	 *
+	 * @return An {@link RSPath} ordered from the target to <code>start</code>,
+	 *         empty if no target was reached.
+	 */
+	public RSPath getShortestPathToParent(BaseRecord start, Predicate<BaseRecord> target,
+			FolderTraversalTerminator terminator) {
+		start();
+		try {
+			return doGetShortestPathToParent(start, target, terminator);
+		} finally {
+			finish();
+		}
+	}
+
+	private RSPath doGetShortestPathToParent(BaseRecord start, Predicate<BaseRecord> target,
+			FolderTraversalTerminator terminator) {
+		int startNode = nodeFor(start);
+		newSearch();
+		visit(startNode, NONE, 0);
+		int tail = 1;
+		int terminal = NONE;
+		for (int head = 0; head < tail; head++) {
+			int curr = queue[head];
+			BaseRecord currRecord = nodes[curr];
+			if (target.test(currRecord)) {
+				terminal = curr;
+				break; // or perhaps don't always want shortest path
+			}
+			for (RecordToFolder rtf : currRecord.getParents()) {
+				Folder parent = rtf.getFolder();
+				if (!terminator.terminate(currRecord, parent)) {
+					int parentNode = nodeFor(parent);
+					if (visitedInSearch[parentNode] != search) {
+						visit(parentNode, curr, depth[curr] + 1);
+						queue[tail++] = parentNode;
+					}
+				} else {
+					terminal = curr;
+				}
+			}
+		}
+		// e.g., this will be null if search up to user root was blocked - e.g.,
+		// by deletion.
+		if (terminal == NONE) {
+			return new RSPath(new ArrayList<>());
+		}
+		List<BaseRecord> path = new ArrayList<>(depth[terminal] + 1);
+		for (int node = terminal; node != NONE; node = predecessor[node]) {
+			path.add(nodes[node]);
+		}
+		return new RSPath(path);
+	}
+
+	/**
+	 * Batch version of {@link BaseRecord#getParentHierarchyForUser(User)}.
+	 * <p>
+	 * Where there is more than one shortest path for a record, the path
+	 * returned may differ from that returned by the single-record method, but
+	 * will be the same length.
+	 *
+	 * @param records
+	 * @param u
+	 * @return A Map of each record to its path, ordered as
+	 *         <code>records</code>; paths are empty if a record is not in
+	 *         <code>u</code>'s folder tree.
+	 */
+	public Map<BaseRecord, RSPath> getParentHierarchiesForUser(Collection<? extends BaseRecord> records, User u) {
+		Folder rootFolder = BaseRecord.getInitializedRootFolder(u);
+		start();
+		try {
+			Map<BaseRecord, RSPath> rc = new LinkedHashMap<>();
+			int rootNode = NONE;
+			if (rootFolder != null) {
+				rootNode = nodeFor(rootFolder);
+				distanceToTarget[rootNode] = 0;
+			}
+			for (BaseRecord record : records) {
+				if (rootNode == NONE) {
+					rc.put(record, new RSPath(new ArrayList<>()));
+				} else {
+					rc.put(record, resolveAgainstKnownPaths(nodeFor(record)));
+				}
+			}
+			return rc;
+		} finally {
+			finish();
+		}
+	}
+
+	/*
+	 * BFS from start, that stops ascending at records whose distance to the
+	 * target is already known from an earlier search. Records on the shortest
+	 * path found have their distances recorded for later searches.
+	 */
+	private RSPath resolveAgainstKnownPaths(int start) {
+		int best = Integer.MAX_VALUE;
+		int bestVia = NONE;
+		newSearch();
+		visit(start, NONE, 0);
+		int tail = 1;
+		for (int head = 0; head < tail; head++) {
+			int curr = queue[head];
+			if (depth[curr] >= best) {
+				break; // nothing further up can be shorter
+			}
+			int known = distanceToTarget[curr];
+			if (known == UNREACHABLE) {
+				continue;
+			}
+			if (known != UNKNOWN) {
+				if (depth[curr] + known < best) {
+					best = depth[curr] + known;
+					bestVia = curr;
+				}
+				continue;
+			}
+			for (RecordToFolder rtf : nodes[curr].getParents()) {
+				int parentNode = nodeFor(rtf.getFolder());
+				if (visitedInSearch[parentNode] != search) {
+					visit(parentNode, curr, depth[curr] + 1);
+					queue[tail++] = parentNode;
+				}
+			}
+		}
+		if (bestVia == NONE) {
+			// whole reachable tree was searched
+			for (int i = 0; i < tail; i++) {
+				distanceToTarget[queue[i]] = UNREACHABLE;
+			}
+			return new RSPath(new ArrayList<>());
+		}
+		// record the path from start to bestVia for subsequent searches
+		for (int node = bestVia; node != start;) {
+			int child = predecessor[node];
+			nextTowardsTarget[child] = node;
+			distanceToTarget[child] = distanceToTarget[node] + 1;
+			node = child;
+		}
+		List<BaseRecord> path = new ArrayList<>(best + 1);
+		for (int node = start; node != NONE; node = nextTowardsTarget[node]) {
+			path.add(nodes[node]);
+			if (distanceToTarget[node] == 0) {
+				break;
+			}
+		}
+		// ordered from target to start
+		for (int i = 0, j = path.size() - 1; i < j; i++, j--) {
+			BaseRecord tmp = path.get(i);
+			path.set(i, path.get(j));
+			path.set(j, tmp);
+		}
+		return new RSPath(path);
+	}
+
+	private void start() {
+		if (inUse) {
+			throw new IllegalStateException("ParentPathFinder is already in use");
+		}
+		inUse = true;
+	}
+
+	// releases records so they can be garbage collected
+	private void finish() {
+		Arrays.fill(nodes, 0, index.size(), null);
+		index.clear();
+		search = 0;
+		inUse = false;
+	}
+
+	private void newSearch() {
+		search++;
+	}
+
+	private void visit(int node, int pred, int nodeDepth) {
+		visitedInSearch[node] = search;
+		predecessor[node] = pred;
+		depth[node] = nodeDepth;
+	}
+
+	private int nodeFor(BaseRecord record) {
+		int node = index.get(record);
+		if (node != NONE) {
+			return node;
+		}
+		node = index.size();
+		if (node == nodes.length) {
+			grow();
+		}
+		index.put(record, node);
+		nodes[node] = record;
+		visitedInSearch[node] = 0;
+		distanceToTarget[node] = UNKNOWN;
+		nextTowardsTarget[node] = NONE;
+		return node;
+	}
+
+	private void grow() {
+		int newCapacity = nodes.length * 2;
+		nodes = Arrays.copyOf(nodes, newCapacity);
+		predecessor = Arrays.copyOf(predecessor, newCapacity);
+		depth = Arrays.copyOf(depth, newCapacity);
+		visitedInSearch = Arrays.copyOf(visitedInSearch, newCapacity);
+		queue = Arrays.copyOf(queue, newCapacity);
+		distanceToTarget = Arrays.copyOf(distanceToTarget, newCapacity);
+		nextTowardsTarget = Arrays.copyOf(nextTowardsTarget, newCapacity);
+	}
+
+	/*
+	 * Maps records to node numbers; by database ID using open addressing on
+	 * primitive arrays, falling back to equals/hashCode for unsaved records.
+	 */
+	private static class NodeIndex {
+		private long[] ids = new long[INITIAL_CAPACITY * 2];
+		private int[] values = new int[INITIAL_CAPACITY * 2];
+		private boolean[] used = new boolean[INITIAL_CAPACITY * 2];
+		private int idCount = 0;
+		private final Map<BaseRecord, Integer> unsaved = new HashMap<>();
+
+		int get(BaseRecord record) {
+			Long id = record.getId();
+			if (id == null) {
+				return unsaved.getOrDefault(record, NONE);
+			}
+			int mask = ids.length - 1;
+			for (int slot = mix(id) & mask; used[slot]; slot = (slot + 1) & mask) {
+				if (ids[slot] == id) {
+					return values[slot];
+				}
+			}
+			return NONE;
+		}
+
+		void put(BaseRecord record, int node) {
+			Long id = record.getId();
+			if (id == null) {
+				unsaved.put(record, node);
+				return;
+			}
+			if ((idCount + 1) * 2 > ids.length) {
+				rehash(ids.length * 2);
+			}
+			insert(id, node);
+			idCount++;
+		}
+
+		private void insert(long id, int node) {
+			int mask = ids.length - 1;
+			int slot = mix(id) & mask;
+			while (used[slot]) {
+				slot = (slot + 1) & mask;
+			}
+			used[slot] = true;
+			ids[slot] = id;
+			values[slot] = node;
+		}
+
+		private void rehash(int newCapacity) {
+			long[] oldIds = ids;
+			int[] oldValues = values;
+			boolean[] oldUsed = used;
+			ids = new long[newCapacity];
+			values = new int[newCapacity];
+			used = new boolean[newCapacity];
+			for (int i = 0; i < oldIds.length; i++) {
+				if (oldUsed[i]) {
+					insert(oldIds[i], oldValues[i]);
+				}
+			}
+		}
+
+		int size() {
+			return idCount + unsaved.size();
+		}
+
+		void clear() {
+			if (idCount > 0) {
+				Arrays.fill(used, false);
+				idCount = 0;
+			}
+			unsaved.clear();
+		}
+
+		private static int mix(long id) {
+			long h = id * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+
+}
@@ -15,4 +15,15 @@ public interface RecordContainerProcessor {
 	 *         subtree(true) or to terminate (false).
 	 */
 	boolean process(BaseRecord rc);
+
+	/**
+	 * Whether this processor can be called concurrently from several threads,
+	 * so can be used by {@link Folder#process(RecordContainerProcessor,
+	 * java.util.concurrent.ForkJoinPool)} to process the tree in parallel.
+	 * 
+	 * @return <code>false</code> by default
+	 */
+	default boolean isThreadSafe() {
+		return false;
+	}
 }
@@ -0,0 +1,101 @@
+package com.researchspace.model.record;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.shiro.crypto.hash.Hash;
+import org.apache.shiro.crypto.hash.Sha256Hash;
+
+/**
+ * Computes the hash used for signing record content, as
+ * <code>SecureStringUtils.getHashForSigning(String)</code> would for the
+ * concatenation of all the text passed to {@link #update(CharSequence)}, but
+ * without ever building that string or its byte representation.
+ * <p>
+ * Text is UTF-8 encoded in fixed-size chunks straight into the digest. A
+ * surrogate pair split across 2 updates is encoded as one character, and
+ * unpaired surrogates are replaced, exactly as
+ * {@link String#getBytes(java.nio.charset.Charset)} does, so hashes are
+ * identical to those of the concatenated string.
+ * <p>
+ * Not thread-safe; use one instance per hash.
+ */
+class SigningContentDigest {
+
+	private static final int CHUNK_SIZE = 8192;
+
+	private final MessageDigest digest;
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private final char[] charArray = new char[CHUNK_SIZE];
+	private final CharBuffer chars = CharBuffer.wrap(charArray);
+	private final ByteBuffer bytes = ByteBuffer.allocate((int) (CHUNK_SIZE * encoder.maxBytesPerChar()));
+
+	SigningContentDigest() {
+		try {
+			digest = MessageDigest.getInstance(Sha256Hash.ALGORITHM_NAME);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Appends text to the content being hashed.
+	 *
+	 * @param text
+	 * @return this, for chaining
+	 */
+	SigningContentDigest update(CharSequence text) {
+		String s = text.toString();
+		int offset = 0;
+		while (offset < s.length()) {
+			int count = Math.min(chars.remaining(), s.length() - offset);
+			s.getChars(offset, offset + count, charArray, chars.position());
+			chars.position(chars.position() + count);
+			offset += count;
+			encode(false);
+		}
+		return this;
+	}
+
+	/**
+	 * Completes the hash; this instance can't be used afterwards.
+	 *
+	 * @return
+	 */
+	Hash finish() {
+		encode(true);
+		flush(encoder.flush(bytes));
+		Sha256Hash hash = new Sha256Hash();
+		hash.setBytes(digest.digest());
+		return hash;
+	}
+
+	// encodes buffered chars, keeping back a trailing high surrogate until the next chunk
+	private void encode(boolean endOfInput) {
+		chars.flip();
+		CoderResult result;
+		do {
+			result = encoder.encode(chars, bytes, endOfInput);
+			flush(result);
+		} while (result.isOverflow());
+		chars.compact();
+	}
+
+	private void flush(CoderResult result) {
+		if (result.isError()) {
+			// can't happen with REPLACE actions
+			throw new IllegalStateException(result.toString());
+		}
+		bytes.flip();
+		digest.update(bytes);
+		bytes.clear();
+	}
+
+}
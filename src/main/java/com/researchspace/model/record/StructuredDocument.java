@@ -4,6 +4,7 @@ import com.researchspace.model.TaggableElnRecord;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.persistence.AttributeOverride;
@@ -39,7 +40,6 @@ import org.hibernate.search.annotations.Store;
 import org.hibernate.search.annotations.TokenFilterDef;
 import org.hibernate.search.annotations.TokenizerDef;
 
-import com.researchspace.core.util.SecureStringUtils;
 import com.researchspace.model.Group;
 import com.researchspace.model.Version;
 import com.researchspace.model.audittrail.AuditTrailProperty;
@@ -91,6 +91,8 @@ public class StructuredDocument extends Record implements TaggableElnRecord {
 	private boolean markedForVersionIncrement = false;
 	private Version userVersion = new Version(0L);
 	private Delta delta = new Delta();
+	// lookup of fields by name and type; invalidated when fields change
+	private transient DocumentFieldIndex fieldIndex;
 
 	@Setter
 	private String docTag;
@@ -222,13 +224,32 @@ public class StructuredDocument extends Record implements TaggableElnRecord {
 	 */
 	@Transient
 	public List<Field> getTextFields() {
-		List<Field> rc = new ArrayList<>();
-		for (Field f : getFields()) {
-			if (FieldType.TEXT.equals(f.getType())) {
-				rc.add(f);
-			}
+		return new ArrayList<>(getFieldsOfType(FieldType.TEXT));
+	}
+
+	/**
+	 * Gets all fields of a type in a document, in document order. Unlike
+	 * {@link #getTextFields()}, this doesn't copy the fields into a new list.
+	 *
+	 * @param type
+	 * @return a possibly empty but non-null, unmodifiable list of fields.
+	 */
+	@Transient
+	public List<Field> getFieldsOfType(FieldType type) {
+		return getFieldIndex().getFieldsOfType(type);
+	}
+
+	private DocumentFieldIndex getFieldIndex() {
+		if (fieldIndex == null || !fieldIndex.isFor(fields)) {
+			fieldIndex = new DocumentFieldIndex(fields);
+		}
+		return fieldIndex;
+	}
+
+	private void invalidateFieldIndex() {
+		if (fieldIndex != null) {
+			fieldIndex.invalidate();
 		}
-		return rc;
 	}
 
 	/**
@@ -274,7 +295,7 @@ public class StructuredDocument extends Record implements TaggableElnRecord {
 	 */
 	@Embedded
 	// RSPAC-380
-	@AttributeOverrides({ @AttributeOverride(name = "deltaString", column = @Column(length = 2000)), })
+	@AttributeOverrides({ @AttributeOverride(name = "deltaString", column = @Column(length = Delta.MAX_DELTA_STRING_LENGTH)), })
 	public Delta getDelta() {
 		return delta;
 	}
@@ -409,11 +430,13 @@ public class StructuredDocument extends Record implements TaggableElnRecord {
 	public boolean addField(Field toAdd) {
 		toAdd.setStructuredDocument(this);
 		fields.add(toAdd);
+		invalidateFieldIndex();
 		return true;
 	}
 
 	boolean removeField(Field toRemove) {
 		toRemove.setStructuredDocument(null);
+		invalidateFieldIndex();
 		return fields.remove(toRemove);
 	}
 
@@ -437,6 +460,7 @@ public class StructuredDocument extends Record implements TaggableElnRecord {
 	 */
 	public boolean setFields(List<Field> args) {
 		this.fields = args;
+		invalidateFieldIndex();
 		return true;
 	}
 
@@ -450,9 +474,21 @@ public class StructuredDocument extends Record implements TaggableElnRecord {
 		return sb.toString();
 	}
 	
+	/**
+	 * Gets the hash of this document's field content used for signing, which
+	 * is the signing hash of {@link #getConcatenatedFieldContent()}. Field
+	 * content is hashed field by field, rather than being concatenated first.
+	 *
+	 * @return
+	 */
 	@Transient
 	public Hash getRecordContentHashForSigning() {
-		return SecureStringUtils.getHashForSigning(getConcatenatedFieldContent());
+		SigningContentDigest digest = new SigningContentDigest();
+		for (int i = 0; i < fields.size(); i++) {
+			digest.update(Integer.toString(i));
+			digest.update(String.valueOf(fields.get(i).getFieldData()));
+		}
+		return digest.finish();
 	}
 
 	/**
@@ -555,6 +591,48 @@ public class StructuredDocument extends Record implements TaggableElnRecord {
 		return tagMetaData;
 	}
 
+	/**
+	 * Sets the data of several fields of this document as one change. All the
+	 * new data is validated before any field is changed, so either all fields
+	 * are updated or none are. Unlike calling {@link Field#setFieldData(String)}
+	 * for each field, a single delta and modification time are recorded for the
+	 * whole update; if listing every changed field would overflow the delta, a
+	 * single {@link DeltaType#FIELD_CHG} entry is recorded.
+	 * 
+	 * @param fieldData
+	 *            new data for each field to update, keyed by fields of this
+	 *            document
+	 * @throws IllegalArgumentException
+	 *             if any field is not in this document, or any data does not
+	 *             validate against its field's template.
+	 */
+	public void updateFields(Map<Field, String> fieldData) {
+		List<String> invalid = new ArrayList<>();
+		for (Map.Entry<Field, String> update : fieldData.entrySet()) {
+			Field field = update.getKey();
+			if (field.getStructuredDocument() != this) {
+				throw new IllegalArgumentException("Field [" + field.getName() + "] is not in this document");
+			}
+			if (field.isValidating() && !field.validate(update.getValue())) {
+				invalid.add(field.getName());
+			}
+		}
+		if (!invalid.isEmpty()) {
+			throw new IllegalArgumentException("Field data invalid against template for fields " + invalid);
+		}
+		if (fieldData.isEmpty()) {
+			return;
+		}
+		List<String> msgs = new ArrayList<>(fieldData.size());
+		for (Map.Entry<Field, String> update : fieldData.entrySet()) {
+			update.getKey().setData(update.getValue());
+			msgs.add(DeltaType.FIELD_CHG + "-" + update.getKey().getName());
+		}
+		delta.addDeltaMsgs(msgs, DeltaType.FIELD_CHG.toString());
+		setMarkedForVersionIncrement(true);
+		getEditInfo().setModificationDateMillis(new Date().getTime());
+	}
+
 	/**
 	 * Gets a field by its name
 	 * 
@@ -563,14 +641,7 @@ public class StructuredDocument extends Record implements TaggableElnRecord {
 	 *         such Field was found.
 	 */
 	public Field getField(String name) {
-		Field res = null;
-		for (Field field : fields) {
-			if (field.getName().equals(name)) {
-				res = field;
-				break;
-			}
-		}
-		return res;
+		return getFieldIndex().getField(name);
 	}
 
 	/**
@@ -0,0 +1,152 @@
+package com.researchspace.model.units;
+
+import java.math.BigDecimal;
+
+/**
+ * Exact running totals of quantities per unit category, in each category's system unit, used by
+ * {@link QuantityUtils#sumByCategory(QuantityColumn, boolean)}.
+ * <p>
+ * A total is kept as a <code>long</code> multiple of a power of ten for as long as it fits, so that
+ * summing typical inventory amounts needs no BigDecimal arithmetic per quantity; totals that overflow
+ * continue as BigDecimals. Partial totals for parts of a column can be combined with
+ * {@link #merge(CategorySums)}.
+ */
+class CategorySums {
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final int[] counts;
+	// the total is unscaled * 10^exponent once started, or large if not null
+	private final long[] unscaled;
+	private final int[] exponents;
+	private final BigDecimal[] large;
+	private final boolean[] started;
+	// largest unit by RSUnitDef order
+	private final RSUnitDef[] largest;
+
+	CategorySums() {
+		int categories = UnitConversionTables.categoryCount();
+		counts = new int[categories];
+		unscaled = new long[categories];
+		exponents = new int[categories];
+		large = new BigDecimal[categories];
+		started = new boolean[categories];
+		largest = new RSUnitDef[categories];
+	}
+
+	/**
+	 * Adds quantities <code>from</code> (inclusive) to <code>to</code> (exclusive) of a column.
+	 *
+	 * @throws IllegalArgumentException if a unit isn't a decimal multiple of its system unit
+	 */
+	CategorySums addAll(QuantityColumn column, int from, int to) {
+		for (int i = from; i < to; i++) {
+			RSUnitDef def = UnitConversionTables.byId(column.unitIdAt(i));
+			if (def == null) {
+				// as QuantityUtils.getUnitById
+				def = RSUnitDef.DIMENSIONLESS;
+			}
+			Integer power = UnitConversionTables.powerOfTenToSystemUnit(def);
+			if (power == null) {
+				throw new IllegalArgumentException("Cannot sum quantities in unit " + def.getLabel());
+			}
+			int category = UnitConversionTables.categoryIndex(def);
+			if (largest[category] == null || def.getOrder() > largest[category].getOrder()) {
+				largest[category] = def;
+			}
+			counts[category]++;
+			BigDecimal largeValue = column.getLargeValue(i);
+			if (largeValue != null) {
+				addLarge(category, largeValue.scaleByPowerOfTen(power));
+			} else {
+				add(category, column.unscaledValueAt(i), power - column.scaleAt(i));
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Adds the totals of another instance to this one.
+	 */
+	CategorySums merge(CategorySums other) {
+		for (int category = 0; category < counts.length; category++) {
+			if (other.counts[category] == 0) {
+				continue;
+			}
+			if (largest[category] == null || other.largest[category].getOrder() > largest[category].getOrder()) {
+				largest[category] = other.largest[category];
+			}
+			counts[category] += other.counts[category];
+			if (other.large[category] != null) {
+				addLarge(category, other.large[category]);
+			} else {
+				add(category, other.unscaled[category], other.exponents[category]);
+			}
+		}
+		return this;
+	}
+
+	int count(int category) {
+		return counts[category];
+	}
+
+	RSUnitDef largestUnit(int category) {
+		return largest[category];
+	}
+
+	/**
+	 * @return the exact total in the category's system unit
+	 */
+	BigDecimal total(int category) {
+		if (large[category] != null) {
+			return large[category];
+		}
+		return BigDecimal.valueOf(unscaled[category], -exponents[category]);
+	}
+
+	private void add(int category, long value, int exponent) {
+		if (large[category] != null) {
+			large[category] = large[category].add(BigDecimal.valueOf(value, -exponent));
+		} else if (!started[category]) {
+			unscaled[category] = value;
+			exponents[category] = exponent;
+			started[category] = true;
+		} else {
+			int commonExponent = Math.min(exponent, exponents[category]);
+			try {
+				long current = multiplyByPowerOfTen(unscaled[category], exponents[category] - commonExponent);
+				long added = multiplyByPowerOfTen(value, exponent - commonExponent);
+				unscaled[category] = Math.addExact(current, added);
+				exponents[category] = commonExponent;
+			} catch (ArithmeticException overflow) {
+				addLarge(category, BigDecimal.valueOf(value, -exponent));
+			}
+		}
+	}
+
+	private void addLarge(int category, BigDecimal value) {
+		if (large[category] == null) {
+			large[category] = started[category] ? BigDecimal.valueOf(unscaled[category], -exponents[category])
+					: BigDecimal.ZERO;
+			started[category] = true;
+		}
+		large[category] = large[category].add(value);
+	}
+
+	private static long multiplyByPowerOfTen(long value, int power) {
+		if (value == 0) {
+			return 0;
+		}
+		if (power >= POWERS_OF_TEN.length) {
+			throw new ArithmeticException("overflow");
+		}
+		return Math.multiplyExact(value, POWERS_OF_TEN[power]);
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.researchspace.model.units;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Column-oriented store of many quantities, for bulk operations such as
+ * {@link QuantityUtils#sumByCategory(QuantityColumn, boolean)}.
+ * <p>
+ * Quantities are held in primitive arrays: unit ids, and numeric values as the unscaled value and scale
+ * of a {@link BigDecimal}. The rare values whose unscaled value doesn't fit in a <code>long</code> are
+ * kept as BigDecimals. A column grows as quantities are added, and is not thread-safe while being filled.
+ */
+public class QuantityColumn {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int size;
+	private int[] unitIds;
+	private long[] unscaledValues;
+	private int[] scales;
+	// only allocated if needed; non-null entries are values too large for unscaledValues
+	private BigDecimal[] largeValues;
+
+	public QuantityColumn() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity expected number of quantities
+	 */
+	public QuantityColumn(int capacity) {
+		Validate.isTrue(capacity >= 0, "capacity must be >= 0");
+		unitIds = new int[capacity];
+		unscaledValues = new long[capacity];
+		scales = new int[capacity];
+	}
+
+	/**
+	 * Creates a column of existing quantities.
+	 */
+	public static QuantityColumn of(Collection<? extends Quantifiable> quantities) {
+		QuantityColumn column = new QuantityColumn(quantities.size());
+		for (Quantifiable q : quantities) {
+			column.add(q);
+		}
+		return column;
+	}
+
+	/**
+	 * Creates a column from parallel arrays of unit ids and values.
+	 *
+	 * @throws IllegalArgumentException if the arrays differ in length
+	 */
+	public static QuantityColumn of(int[] unitIds, BigDecimal[] values) {
+		Validate.isTrue(unitIds.length == values.length, "unitIds and values must be the same length");
+		QuantityColumn column = new QuantityColumn(unitIds.length);
+		for (int i = 0; i < unitIds.length; i++) {
+			column.add(unitIds[i], values[i]);
+		}
+		return column;
+	}
+
+	/**
+	 * Appends a quantity. A missing unit id is stored as -1, which like any unknown id is treated as
+	 * dimensionless, as by {@link QuantityUtils#getUnitById(Integer)}.
+	 *
+	 * @return this column
+	 */
+	public QuantityColumn add(Quantifiable quantity) {
+		Integer unitId = quantity.getUnitId();
+		return add(unitId == null ? -1 : unitId, quantity.getNumericValue());
+	}
+
+	/**
+	 * Appends a quantity.
+	 *
+	 * @param unitId an {@link RSUnitDef} id
+	 * @param value
+	 * @return this column
+	 * @throws IllegalArgumentException if <code>value</code> is null
+	 */
+	public QuantityColumn add(int unitId, BigDecimal value) {
+		Validate.notNull(value, "value can't be null");
+		if (size == unitIds.length) {
+			grow();
+		}
+		unitIds[size] = unitId;
+		scales[size] = value.scale();
+		if (value.unscaledValue().bitLength() < Long.SIZE) {
+			unscaledValues[size] = value.unscaledValue().longValue();
+		} else {
+			if (largeValues == null) {
+				largeValues = new BigDecimal[unitIds.length];
+			}
+			largeValues[size] = value;
+		}
+		size++;
+		return this;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getUnitId(int index) {
+		checkIndex(index);
+		return unitIds[index];
+	}
+
+	public BigDecimal getValue(int index) {
+		checkIndex(index);
+		BigDecimal large = getLargeValue(index);
+		return large != null ? large : BigDecimal.valueOf(unscaledValues[index], scales[index]);
+	}
+
+	/*
+	 * Unchecked access for bulk operations in this package. getLargeValue is non-null for values that
+	 * don't fit in unscaledValueAt/scaleAt.
+	 */
+	int unitIdAt(int index) {
+		return unitIds[index];
+	}
+
+	long unscaledValueAt(int index) {
+		return unscaledValues[index];
+	}
+
+	int scaleAt(int index) {
+		return scales[index];
+	}
+
+	BigDecimal getLargeValue(int index) {
+		return largeValues == null ? null : largeValues[index];
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	private void grow() {
+		int newCapacity = Math.max(DEFAULT_CAPACITY, unitIds.length * 2);
+		unitIds = Arrays.copyOf(unitIds, newCapacity);
+		unscaledValues = Arrays.copyOf(unscaledValues, newCapacity);
+		scales = Arrays.copyOf(scales, newCapacity);
+		if (largeValues != null) {
+			largeValues = Arrays.copyOf(largeValues, newCapacity);
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.researchspace.model.units;
+
+import java.math.BigDecimal;
+
+/**
+ * Running total of quantities that can be added and removed one at a time, for keeping a sum of
+ * changing quantities up to date without summing them all again after each change.
+ * <p>
+ * The total is kept exactly, in system units, for quantities in units that are decimal multiples of
+ * their system unit. {@link #getTotal()} gives the same result as {@link QuantityUtils#sum(java.util.Collection)}
+ * for the quantities added and not removed, or <code>null</code> where that can't be worked out from the
+ * running total, e.g. for temperatures or incompatible units, when callers should use
+ * {@link QuantityUtils#sum(java.util.Collection)} instead.
+ * <p>
+ * Quantities must be removed with the same unit and value they were added with. Not thread-safe.
+ */
+public class QuantityTotal {
+
+	private static final RSUnitDef[] DEFS = RSUnitDef.values();
+
+	private final int[] countsByUnit = new int[DEFS.length];
+	private int size;
+	// total of quantities in units with a power of ten to their system unit, in system units
+	private BigDecimal total = BigDecimal.ZERO;
+
+	/**
+	 * Adds a quantity to the total.
+	 */
+	public void add(Quantifiable quantity) {
+		RSUnitDef def = getUnitDef(quantity);
+		countsByUnit[def.ordinal()]++;
+		size++;
+		Integer power = UnitConversionTables.powerOfTenToSystemUnit(def);
+		if (power != null) {
+			total = total.add(quantity.getNumericValue().scaleByPowerOfTen(power));
+		}
+	}
+
+	/**
+	 * Removes a previously added quantity from the total.
+	 *
+	 * @throws IllegalStateException if no quantity in this unit was added
+	 */
+	public void remove(Quantifiable quantity) {
+		RSUnitDef def = getUnitDef(quantity);
+		if (countsByUnit[def.ordinal()] == 0) {
+			throw new IllegalStateException("No quantity in " + def.getLabel() + " to remove");
+		}
+		countsByUnit[def.ordinal()]--;
+		size--;
+		Integer power = UnitConversionTables.powerOfTenToSystemUnit(def);
+		if (power != null) {
+			total = total.subtract(quantity.getNumericValue().scaleByPowerOfTen(power));
+		}
+	}
+
+	/**
+	 * @return the number of quantities in the total
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the total, as {@link QuantityUtils#sum(java.util.Collection)} would calculate it, or
+	 *         <code>null</code> if there are no quantities or the total can't be worked out exactly.
+	 */
+	public QuantityInfo getTotal() {
+		if (size == 0) {
+			return null;
+		}
+		RSUnitDef first = null;
+		RSUnitDef sumUnit = null;
+		int largestOrder = Integer.MIN_VALUE;
+		for (RSUnitDef def : DEFS) {
+			if (countsByUnit[def.ordinal()] == 0) {
+				continue;
+			}
+			int kind = UnitConversionTables.kind(def);
+			if ((kind != UnitConversionTables.MASS && kind != UnitConversionTables.VOLUME
+					&& kind != UnitConversionTables.DIMENSIONLESS)
+					|| UnitConversionTables.powerOfTenToSystemUnit(def) == null) {
+				return null;
+			}
+			if (first == null) {
+				first = def;
+			} else if (!UnitConversionTables.isCompatible(first, def)) {
+				return null;
+			}
+			RSUnitDef defSumUnit = UnitConversionTables.sumUnit(def);
+			if (def.getOrder() > largestOrder) {
+				largestOrder = def.getOrder();
+				sumUnit = defSumUnit;
+			} else if (def.getOrder() == largestOrder && defSumUnit != sumUnit) {
+				// QuantityUtils.sum would use the first of these in the collection summed
+				return null;
+			}
+		}
+		if (sumUnit == null || UnitConversionTables.powerOfTenToSystemUnit(sumUnit) == null) {
+			return null;
+		}
+		int sumPower = UnitConversionTables.powerOfTenToSystemUnit(sumUnit);
+		return new QuantityUtils().toMoreUsefulUnit(total.scaleByPowerOfTen(-sumPower), sumUnit);
+	}
+
+	private RSUnitDef getUnitDef(Quantifiable quantity) {
+		RSUnitDef def = UnitConversionTables.byId(quantity.getUnitId());
+		// as QuantityUtils.getUnitById
+		return def != null ? def : RSUnitDef.DIMENSIONLESS;
+	}
+
+}
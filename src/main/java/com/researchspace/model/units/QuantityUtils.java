@@ -4,14 +4,18 @@ import static com.researchspace.core.util.TransformerUtils.toList;
 import static org.apache.commons.lang3.Validate.isTrue;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 import javax.measure.Quantity;
 import javax.measure.Unit;
@@ -30,6 +34,11 @@ import tech.units.indriya.format.SimpleUnitFormat;
 import tech.units.indriya.quantity.Quantities;
 
 public class QuantityUtils {
+
+	private static final int PARALLEL_SUM_CHUNK_SIZE = 8192;
+	private static final int MAX_CACHED_UNIT_STRINGS = 1000;
+	// unit strings seen by parseQuantityInfo, and the units the full parser finds for them
+	private static final Map<String, Optional<RSUnitDef>> UNITS_BY_UNIT_STRING = new ConcurrentHashMap<>();
 	
 	/**
 	 * Get unit by id
@@ -37,8 +46,8 @@ public class QuantityUtils {
 	 * @return The found unit definition, or RSUnitDefs.DIMENSIONLESS if not found
 	 */
 	public RSUnitDef getUnitById(Integer id) {
-		return EnumSet.allOf(RSUnitDef.class).stream().filter(def->def.getId() == id)
-				.findFirst().orElse(RSUnitDef.DIMENSIONLESS);
+		RSUnitDef def = UnitConversionTables.byId(id);
+		return def != null ? def : RSUnitDef.DIMENSIONLESS;
 	}
 	
 	public  <Q extends Quantity<Q>> Quantity<Q> getQuantityFor (Quantifiable quantifiable, Class<Q> clazz) {
@@ -56,11 +65,13 @@ public class QuantityUtils {
 	 */
 	public boolean isComparableQuantities (Collection<? extends Quantifiable> toTest) {
 		Validate.isTrue(!toTest.isEmpty(), "cannot compare an empty collection of quantities");
-		Quantifiable initialComparator = toTest.iterator().next();
-		Unit<?> initialDefUnit = getUnitById(initialComparator.getUnitId()).getDefinition();
-		return toTest.stream().map(q->getUnitById(q.getUnitId()))
-				.map(RSUnitDef::getDefinition)
-				.allMatch(initialDefUnit::isCompatible);
+		RSUnitDef initialDef = getUnitById(toTest.iterator().next().getUnitId());
+		for (Quantifiable q : toTest) {
+			if (!UnitConversionTables.isCompatible(initialDef, getUnitById(q.getUnitId()))) {
+				return false;
+			}
+		}
+		return true;
 	}
 	
 	/**
@@ -68,7 +79,7 @@ public class QuantityUtils {
 	 *@see #isComparableQuantities (Collection toTest)
 	 */
 	public boolean isComparableQuantities (Quantifiable q1, Quantifiable q2) {
-		return isComparableQuantities(toList(q1, q2));
+		return UnitConversionTables.isCompatible(getUnitById(q1.getUnitId()), getUnitById(q2.getUnitId()));
 	}
 	/**
 	 * Integer value MAX_VALUE representing an incompatible comparison.
@@ -172,7 +183,19 @@ public class QuantityUtils {
 			return INCOMPARABLE;
 		}
 
-		// else we have to convert to common units.
+		// else we have to convert to common units; exactly, if both units are decimal multiples of it
+		RSUnitDef defA = getUnitById(q1.getUnitId());
+		RSUnitDef defB = getUnitById(q2.getUnitId());
+		Integer powerA = UnitConversionTables.powerOfTenToSystemUnit(defA);
+		Integer powerB = UnitConversionTables.powerOfTenToSystemUnit(defB);
+		int kind = UnitConversionTables.kind(clazz);
+		if (powerA != null && powerB != null && kind != UnitConversionTables.OTHER
+				&& kind == UnitConversionTables.kind(defA) && kind == UnitConversionTables.kind(defB)) {
+			// compared as doubles, as the values of converted quantities are
+			double a = q1.getNumericValue().scaleByPowerOfTen(powerA).doubleValue();
+			double b = q2.getNumericValue().scaleByPowerOfTen(powerB).doubleValue();
+			return a < b ? -1 : (a > b ? 1 : 0);
+		}
 		Quantity<Q> qA = getQuantityFor(q1, clazz).toSystemUnit();
 		Quantity<Q> qB = getQuantityFor(q2, clazz).toSystemUnit();
 		return BigDecimal.valueOf(qA.getValue().doubleValue())
@@ -195,6 +218,10 @@ public class QuantityUtils {
 	 */
 	public QuantityInfo sum(Collection<? extends Quantifiable> toSum) {
 		isTrue(isComparableQuantities(toSum), "items to sum are not commensurate - they have different unit categories");
+		QuantityInfo exactSum = sumExactly(toSum);
+		if (exactSum != null) {
+			return exactSum;
+		}
 		Quantity<?> result = getForQuantifiable(toSum, new QuantitySummingVisitor());
 		result = convertToMoreUsefulUnit(result); 
 
@@ -202,6 +229,153 @@ public class QuantityUtils {
 				RSUnitDef.getUnitDefByUnit(result.getUnit()).get());
 	}
 	
+	/**
+	 * Bulk version of {@link #sum(Collection)} for large numbers of quantities, e.g. all the subsamples
+	 * of many samples. Quantities are grouped by unit category, and each group is summed exactly in
+	 * its system unit, without creating javax.measure quantities; the result for each category is the
+	 * same as that of {@link #sum(Collection)} for the quantities of that category.
+	 * 
+	 * @param quantities
+	 * @param parallel
+	 *            whether to sum parts of large columns in parallel, in the common fork-join pool
+	 * @return A Map of category name (e.g. {@link RSUnits#MASS_CATEGORY}) to total, for each category
+	 *         present, in a fixed category order. Empty if <code>quantities</code> is empty.
+	 * @throws IllegalArgumentException if any quantity is in a category that can't be summed, e.g.
+	 *             temperature
+	 */
+	public Map<String, QuantityInfo> sumByCategory(QuantityColumn quantities, boolean parallel) {
+		int size = quantities.size();
+		CategorySums sums;
+		if (parallel && size > PARALLEL_SUM_CHUNK_SIZE) {
+			int chunks = (size + PARALLEL_SUM_CHUNK_SIZE - 1) / PARALLEL_SUM_CHUNK_SIZE;
+			sums = IntStream.range(0, chunks).parallel()
+					.mapToObj(chunk -> new CategorySums().addAll(quantities, chunk * PARALLEL_SUM_CHUNK_SIZE,
+							Math.min(size, (chunk + 1) * PARALLEL_SUM_CHUNK_SIZE)))
+					.reduce(CategorySums::merge).get();
+		} else {
+			sums = new CategorySums().addAll(quantities, 0, size);
+		}
+
+		Map<String, QuantityInfo> rc = new LinkedHashMap<>();
+		for (int category = 0; category < UnitConversionTables.categoryCount(); category++) {
+			if (sums.count(category) == 0) {
+				continue;
+			}
+			String categoryName = UnitConversionTables.category(category);
+			RSUnitDef largest = sums.largestUnit(category);
+			int kind = UnitConversionTables.kind(largest);
+			if (kind != UnitConversionTables.MASS && kind != UnitConversionTables.VOLUME
+					&& kind != UnitConversionTables.DIMENSIONLESS) {
+				throw new IllegalArgumentException("Cannot sum quantities of category " + categoryName);
+			}
+			QuantityInfo total = null;
+			RSUnitDef sumUnit = UnitConversionTables.sumUnit(largest);
+			if (sumUnit != null) {
+				int sumPower = UnitConversionTables.powerOfTenToSystemUnit(sumUnit);
+				total = toMoreUsefulUnit(sums.total(category).scaleByPowerOfTen(-sumPower), sumUnit);
+			}
+			if (total == null) {
+				total = sum(getQuantitiesOfCategory(quantities, category));
+			}
+			rc.put(categoryName, total);
+		}
+		return rc;
+	}
+
+	/**
+	 * Sequential {@link #sumByCategory(QuantityColumn, boolean)} of quantities given as parallel
+	 * arrays.
+	 * 
+	 * @param unitIds
+	 *            {@link RSUnitDef} ids
+	 * @param values
+	 *            numeric values, in the same order as the unit ids
+	 * @throws IllegalArgumentException if the arrays differ in length, or as for
+	 *             {@link #sumByCategory(QuantityColumn, boolean)}
+	 */
+	public Map<String, QuantityInfo> sumByCategory(int[] unitIds, BigDecimal[] values) {
+		return sumByCategory(QuantityColumn.of(unitIds, values), false);
+	}
+
+	private List<QuantityInfo> getQuantitiesOfCategory(QuantityColumn quantities, int category) {
+		List<QuantityInfo> rc = new ArrayList<>();
+		for (int i = 0; i < quantities.size(); i++) {
+			RSUnitDef def = getUnitById(quantities.getUnitId(i));
+			if (UnitConversionTables.categoryIndex(def) == category) {
+				rc.add(QuantityInfo.of(quantities.getValue(i), def));
+			}
+		}
+		return rc;
+	}
+
+	/*
+	 * Sums quantities as sum() does with javax.measure quantities, but in BigDecimal arithmetic,
+	 * if all the units involved are decimal multiples of their system unit. Values are summed
+	 * exactly in the unit javax.measure sums in, and the choice of a more useful unit and the
+	 * result value are based on the double value of the sum, as in convertToMoreUsefulUnit.
+	 * 
+	 * Returns null if the quantities can't be summed this way.
+	 */
+	private QuantityInfo sumExactly(Collection<? extends Quantifiable> toSum) {
+		RSUnitDef first = getUnitById(toSum.iterator().next().getUnitId());
+		int kind = UnitConversionTables.kind(first);
+		if (kind != UnitConversionTables.MASS && kind != UnitConversionTables.VOLUME
+				&& kind != UnitConversionTables.DIMENSIONLESS) {
+			return null;
+		}
+		// first of the largest units, as Collections.max finds it
+		RSUnitDef largest = first;
+		for (Quantifiable q : toSum) {
+			RSUnitDef def = getUnitById(q.getUnitId());
+			if (def.getOrder() > largest.getOrder()) {
+				largest = def;
+			}
+		}
+		RSUnitDef sumUnit = UnitConversionTables.sumUnit(largest);
+		if (sumUnit == null || UnitConversionTables.powerOfTenToSystemUnit(sumUnit) == null) {
+			return null;
+		}
+		int sumPower = UnitConversionTables.powerOfTenToSystemUnit(sumUnit);
+		BigDecimal sum = BigDecimal.ZERO;
+		for (Quantifiable q : toSum) {
+			Integer power = UnitConversionTables.powerOfTenToSystemUnit(getUnitById(q.getUnitId()));
+			if (power == null) {
+				return null;
+			}
+			sum = sum.add(q.getNumericValue().scaleByPowerOfTen(power - sumPower));
+		}
+		return toMoreUsefulUnit(sum, sumUnit);
+	}
+
+	/*
+	 * As convertToMoreUsefulUnit, for an exact value in a unit that is a decimal multiple of its
+	 * system unit. Returns null if the more useful unit isn't a decimal multiple.
+	 */
+	QuantityInfo toMoreUsefulUnit(BigDecimal sum, RSUnitDef sumUnit) {
+		int sumPower = UnitConversionTables.powerOfTenToSystemUnit(sumUnit);
+		RSUnitDef resultUnit = sumUnit;
+		double sumValue = sum.doubleValue();
+		if (sumValue != 0) {
+			RSUnitDef usefulUnit = null;
+			if (Math.abs(sumValue) < 1.0) {
+				usefulUnit = RSUnitDef.getUnitSmallerThan(sumUnit);
+			}
+			if (usefulUnit == null && Math.abs(sumValue) >= 1000.0
+					&& ((long) (sumValue * 1000)) % (1000 * 1000) == 0) {
+				usefulUnit = RSUnitDef.getUnitLargerThan(sumUnit);
+			}
+			if (usefulUnit != null) {
+				Integer usefulPower = UnitConversionTables.powerOfTenToSystemUnit(usefulUnit);
+				if (usefulPower == null) {
+					return null;
+				}
+				resultUnit = UnitConversionTables.canonical(usefulUnit);
+				sumValue = sum.scaleByPowerOfTen(sumPower - usefulPower).doubleValue();
+			}
+		}
+		return QuantityInfo.of(BigDecimal.valueOf(sumValue), resultUnit);
+	}
+
 	/**
 	 * Divide a quantity by a specific divisor.
 	 * 
@@ -303,7 +477,14 @@ public class QuantityUtils {
 		if (StringUtils.isBlank(quantityString)) {
 			return null;
 		}
+		QuantityInfo parsed = parseSimpleQuantityInfo(quantityString);
+		return parsed != null ? parsed : parseQuantityInfoFully(quantityString);
+	}
 
+	/*
+	 * The full parser, used for quantity strings not handled by parseSimpleQuantityInfo
+	 */
+	static QuantityInfo parseQuantityInfoFully(String quantityString) {
 		Quantity<?> parsedQuantity = null;
 		try {
 			String quantityStringWithSpace = addSpaceBetweenNumberAndUnitPartOfQuantityString(quantityString);
@@ -324,6 +505,80 @@ public class QuantityUtils {
 		return QuantityInfo.of(new BigDecimal(parsedQuantity.getValue().toString()), rsUnitDefOpt.get());
 	}
 
+	/*
+	 * Parses the common case of a plain non-negative decimal number, optionally followed by a unit, with or without a
+	 * single space in between, e.g. "5ml" or "1.5 g", without regexes or the javax.measure parser.
+	 * Units are looked up in a cache of the units the full parser finds for each unit string.
+	 * 
+	 * Returns null for anything else, including unknown units, so the full parser can handle it and
+	 * report any error. Numbers are limited to 15 significant digits, which any number representation
+	 * used by the full parser preserves exactly.
+	 */
+	static QuantityInfo parseSimpleQuantityInfo(String quantityString) {
+		int length = quantityString.length();
+		int i = 0;
+		int digits = countDigits(quantityString, i);
+		if (digits == 0) {
+			return null;
+		}
+		i += digits;
+		int significantDigits = digits;
+		if (i < length && quantityString.charAt(i) == '.') {
+			int fractionDigits = countDigits(quantityString, i + 1);
+			if (fractionDigits == 0) {
+				return null;
+			}
+			i += 1 + fractionDigits;
+			significantDigits += fractionDigits;
+		}
+		if (significantDigits > 15) {
+			return null;
+		}
+		int numberEnd = i;
+		if (i < length && quantityString.charAt(i) == ' ') {
+			i++;
+			if (i == length) {
+				return null;
+			}
+		}
+		for (int j = i; j < length; j++) {
+			char c = quantityString.charAt(j);
+			if (Character.isWhitespace(c) || (c >= '0' && c <= '9') || c == '^') {
+				return null;
+			}
+		}
+		RSUnitDef unit = getUnitForUnitString(quantityString.substring(i));
+		if (unit == null) {
+			return null;
+		}
+		return QuantityInfo.of(new BigDecimal(quantityString.substring(0, numberEnd)), unit);
+	}
+
+	private static int countDigits(String s, int from) {
+		int i = from;
+		while (i < s.length() && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+			i++;
+		}
+		return i - from;
+	}
+
+	private static RSUnitDef getUnitForUnitString(String unitString) {
+		Optional<RSUnitDef> unit = UNITS_BY_UNIT_STRING.get(unitString);
+		if (unit == null) {
+			try {
+				QuantityInfo probe = parseQuantityInfoFully(unitString.isEmpty() ? "1" : "1 " + unitString);
+				unit = Optional.ofNullable(UnitConversionTables.byId(probe.getUnitId()));
+			} catch (IllegalArgumentException e) {
+				unit = Optional.empty();
+			}
+			// bounded, as unit strings come from user input; once full, new strings just aren't cached
+			if (UNITS_BY_UNIT_STRING.size() < MAX_CACHED_UNIT_STRINGS) {
+				UNITS_BY_UNIT_STRING.putIfAbsent(unitString, unit);
+			}
+		}
+		return unit.orElse(null);
+	}
+
 	private static String addSpaceBetweenNumberAndUnitPartOfQuantityString(String quantityString) {
 		// if string is build as number fragment followed by letters, put a space between number and letters
 		return quantityString.replaceAll("^(.*\\d)([^0-9^\\s]+)$", "$1 $2");
@@ -1,6 +1,5 @@
 package com.researchspace.model.units;
 
-import java.util.Arrays;
 import java.util.Optional;
 
 import javax.measure.Unit;
@@ -82,18 +81,11 @@ public enum RSUnitDef {
 	}
 
 	private static Optional<RSUnitDef> getUnitByIdOptional(Integer id) {
-		return Arrays.stream(values()).filter(def->def.getId().equals(id)).findFirst();
+		return Optional.ofNullable(UnitConversionTables.byId(id));
 	}
 	
 	public static Optional<RSUnitDef> getUnitDefByUnit(Unit<?> unit) {
-		return Arrays.stream(values()).filter(def->def.getDefinition().equals(unit))
-				.findFirst();
-	}
-
-	private static Optional<RSUnitDef> getUnitByCategoryAndConversionOrder(String category, Integer conversionOrder) {
-		return Arrays.stream(values())
-				.filter(def->category.equals(def.getCategory()) && conversionOrder.equals(def.getOrder()))
-				.findFirst();
+		return Optional.ofNullable(UnitConversionTables.byUnit(unit));
 	}
 	
 	
@@ -103,7 +95,7 @@ public enum RSUnitDef {
 	 * @return <code>true</code> if exists, <code>false</code>otherwise
 	 */
 	public static  boolean exists(Integer id) {
-		return Arrays.stream(values()).anyMatch(def->def.getId().equals(id));
+		return UnitConversionTables.byId(id) != null;
 	}
 	@JsonIgnore
 	public Unit<?> getDefinition() {
@@ -192,11 +184,8 @@ public enum RSUnitDef {
 	 * @return smaller unit, or null if passed unit is already smallest
 	 */
 	public static RSUnitDef getUnitSmallerThan(RSUnitDef initialUnit) {
-		Optional<RSUnitDef> prevUnit = getUnitByCategoryAndConversionOrder(initialUnit.getCategory(), initialUnit.getOrder() - 1);
-		if (prevUnit.isPresent() && prevUnit.get().getCategory().equals(initialUnit.getCategory())) {
-			return prevUnit.get();
-		}
-		return null; // already smallest unit in the convertable category
+		// null if already smallest unit in the convertable category
+		return UnitConversionTables.smallerThan(initialUnit);
 	}
 
 	/**
@@ -207,11 +196,8 @@ public enum RSUnitDef {
 	 * @return larger unit, or null if passed unit is already largest 
 	 */
 	public static RSUnitDef getUnitLargerThan(RSUnitDef initialUnit) {
-		Optional<RSUnitDef> nextUnit = getUnitByCategoryAndConversionOrder(initialUnit.getCategory(), initialUnit.getOrder() + 1);
-		if (nextUnit.isPresent() && nextUnit.get().getCategory().equals(initialUnit.getCategory())) {
-			return nextUnit.get();
-		}
-		return null; // already largest unit in the convertable category
+		// null if already largest unit in the convertable category
+		return UnitConversionTables.largerThan(initialUnit);
 	}
 
 }
@@ -0,0 +1,241 @@
+package com.researchspace.model.units;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.measure.Unit;
+import javax.measure.UnitConverter;
+import javax.measure.quantity.Dimensionless;
+import javax.measure.quantity.Mass;
+import javax.measure.quantity.Temperature;
+import javax.measure.quantity.Volume;
+
+import tech.units.indriya.AbstractUnit;
+import tech.units.indriya.format.SimpleUnitFormat;
+
+/**
+ * Lookup tables for {@link RSUnitDef}s, computed once from the unit definitions, so that unit lookups
+ * and conversions between units don't need to search all units or go through javax.measure quantities.
+ * <p>
+ * Units whose conversion to their system unit is an exact power of ten (all the mass, volume, molarity,
+ * concentration and dimensionless units) have that power recorded, so that values can be converted
+ * exactly with {@link BigDecimal#scaleByPowerOfTen(int)}. Other units, e.g. temperatures, have none, and
+ * callers must fall back to javax.measure conversions for them.
+ * <p>
+ * Tables are indexed by {@link RSUnitDef#ordinal()}.
+ */
+final class UnitConversionTables {
+
+	static final int MASS = 1;
+	static final int VOLUME = 2;
+	static final int DIMENSIONLESS = 3;
+	static final int TEMPERATURE = 4;
+	static final int OTHER = 0;
+
+	private static final RSUnitDef[] DEFS = RSUnitDef.values();
+	private static final RSUnitDef[] BY_ID;
+	private static final RSUnitDef[] SMALLER = new RSUnitDef[DEFS.length];
+	private static final RSUnitDef[] LARGER = new RSUnitDef[DEFS.length];
+	// the unit def found for a def's definition, which may not be the def itself if definitions are equal
+	private static final RSUnitDef[] CANONICAL = new RSUnitDef[DEFS.length];
+	// the unit def QuantityUtils sums into, when this is the largest unit summed
+	private static final RSUnitDef[] SUM_UNIT = new RSUnitDef[DEFS.length];
+	private static final Integer[] POWER_OF_TEN_TO_SYSTEM_UNIT = new Integer[DEFS.length];
+	private static final int[] KIND = new int[DEFS.length];
+	private static final boolean[][] COMPATIBLE = new boolean[DEFS.length][DEFS.length];
+	// categories in order of first use by a unit, and the index of each unit's category
+	private static final List<String> CATEGORIES = new ArrayList<>();
+	private static final int[] CATEGORY_INDEX = new int[DEFS.length];
+
+	static {
+		int maxId = 0;
+		for (RSUnitDef def : DEFS) {
+			maxId = Math.max(maxId, def.getId());
+		}
+		BY_ID = new RSUnitDef[maxId + 1];
+		for (RSUnitDef def : DEFS) {
+			// first wins, as in a search of values()
+			if (BY_ID[def.getId()] == null) {
+				BY_ID[def.getId()] = def;
+			}
+		}
+		for (RSUnitDef def : DEFS) {
+			int i = def.ordinal();
+			SMALLER[i] = findByCategoryAndOrder(def.getCategory(), def.getOrder() - 1);
+			LARGER[i] = findByCategoryAndOrder(def.getCategory(), def.getOrder() + 1);
+			CANONICAL[i] = findByUnit(def.getDefinition());
+			POWER_OF_TEN_TO_SYSTEM_UNIT[i] = powerOfTenToSystemUnit(def.getDefinition());
+			KIND[i] = kindOf(def);
+			if (!CATEGORIES.contains(def.getCategory())) {
+				CATEGORIES.add(def.getCategory());
+			}
+			CATEGORY_INDEX[i] = CATEGORIES.indexOf(def.getCategory());
+			for (RSUnitDef other : DEFS) {
+				COMPATIBLE[i][other.ordinal()] = def.getDefinition().isCompatible(other.getDefinition());
+			}
+		}
+		for (RSUnitDef def : DEFS) {
+			SUM_UNIT[def.ordinal()] = sumUnitFor(def);
+		}
+	}
+
+	private UnitConversionTables() {
+	}
+
+	/**
+	 * @return the unit with the given id, or <code>null</code> if there is none
+	 */
+	static RSUnitDef byId(Integer id) {
+		if (id == null || id < 0 || id >= BY_ID.length) {
+			return null;
+		}
+		return BY_ID[id];
+	}
+
+	/**
+	 * @return the first unit whose definition equals <code>unit</code>, or <code>null</code> if there is none
+	 */
+	static RSUnitDef byUnit(Unit<?> unit) {
+		// usually one of the definitions itself
+		for (RSUnitDef def : DEFS) {
+			if (def.getDefinition() == unit) {
+				return CANONICAL[def.ordinal()];
+			}
+		}
+		return findByUnit(unit);
+	}
+
+	static RSUnitDef smallerThan(RSUnitDef def) {
+		return SMALLER[def.ordinal()];
+	}
+
+	static RSUnitDef largerThan(RSUnitDef def) {
+		return LARGER[def.ordinal()];
+	}
+
+	/**
+	 * @return the unit def for this def's definition, as {@link #byUnit(Unit)} would find it
+	 */
+	static RSUnitDef canonical(RSUnitDef def) {
+		return CANONICAL[def.ordinal()];
+	}
+
+	/**
+	 * @return the unit def that QuantityUtils sums quantities in, when <code>largest</code> is the largest
+	 *         unit summed, or <code>null</code> if not known.
+	 */
+	static RSUnitDef sumUnit(RSUnitDef largest) {
+		return SUM_UNIT[largest.ordinal()];
+	}
+
+	/**
+	 * @return n such that a value in this unit is value * 10^n in the system unit, or <code>null</code> if
+	 *         the conversion isn't an exact power of ten.
+	 */
+	static Integer powerOfTenToSystemUnit(RSUnitDef def) {
+		return POWER_OF_TEN_TO_SYSTEM_UNIT[def.ordinal()];
+	}
+
+	/**
+	 * @return one of {@link #MASS}, {@link #VOLUME}, {@link #DIMENSIONLESS}, {@link #TEMPERATURE} or
+	 *         {@link #OTHER}, as tested in that order by the <code>isXXX</code> methods of {@link RSUnitDef}
+	 */
+	static int kind(RSUnitDef def) {
+		return KIND[def.ordinal()];
+	}
+
+	/**
+	 * @return the kind of quantity of a javax.measure quantity class, or {@link #OTHER}
+	 */
+	static int kind(Class<?> quantityClass) {
+		if (Mass.class.equals(quantityClass)) {
+			return MASS;
+		} else if (Volume.class.equals(quantityClass)) {
+			return VOLUME;
+		} else if (Dimensionless.class.equals(quantityClass)) {
+			return DIMENSIONLESS;
+		} else if (Temperature.class.equals(quantityClass)) {
+			return TEMPERATURE;
+		}
+		return OTHER;
+	}
+
+	static int categoryCount() {
+		return CATEGORIES.size();
+	}
+
+	static int categoryIndex(RSUnitDef def) {
+		return CATEGORY_INDEX[def.ordinal()];
+	}
+
+	static String category(int categoryIndex) {
+		return CATEGORIES.get(categoryIndex);
+	}
+
+	static boolean isCompatible(RSUnitDef a, RSUnitDef b) {
+		return COMPATIBLE[a.ordinal()][b.ordinal()];
+	}
+
+	private static RSUnitDef findByUnit(Unit<?> unit) {
+		for (RSUnitDef def : DEFS) {
+			if (def.getDefinition().equals(unit)) {
+				return def;
+			}
+		}
+		return null;
+	}
+
+	private static RSUnitDef findByCategoryAndOrder(String category, Integer order) {
+		for (RSUnitDef def : DEFS) {
+			if (category.equals(def.getCategory()) && order.equals(def.getOrder())) {
+				return def;
+			}
+		}
+		return null;
+	}
+
+	private static int kindOf(RSUnitDef def) {
+		if (def.isMass()) {
+			return MASS;
+		} else if (def.isVolume()) {
+			return VOLUME;
+		} else if (def.isDimensionless()) {
+			return DIMENSIONLESS;
+		} else if (def.isTemperature()) {
+			return TEMPERATURE;
+		}
+		return OTHER;
+	}
+
+	// as QuantityUtils.QuantitySummingVisitor chooses the unit to sum in
+	private static RSUnitDef sumUnitFor(RSUnitDef largest) {
+		if (KIND[largest.ordinal()] == DIMENSIONLESS) {
+			return findByUnit(AbstractUnit.ONE);
+		}
+		try {
+			return findByUnit(SimpleUnitFormat.getInstance().parse(largest.getLabel()));
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static Integer powerOfTenToSystemUnit(Unit<?> unit) {
+		try {
+			UnitConverter converter = unit.getConverterToAny(unit.getSystemUnit());
+			if (!converter.isLinear()) {
+				return null;
+			}
+			// a power of ten is exactly recovered from its nearest double
+			BigDecimal factor = BigDecimal.valueOf(converter.convert(1.0d).doubleValue()).stripTrailingZeros();
+			if (factor.unscaledValue().equals(BigInteger.ONE)) {
+				return -factor.scale();
+			}
+			return null;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+}
@@ -1,9 +1,19 @@
 package com.researchspace.model;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -36,4 +46,29 @@ public class EcatImageAnnotationTest {
 	    ModelTestUtils.assertCopiedFieldsAreEqual(copy, ann, toExclude, classes);
 	}
 
+	@Test
+	public void dataReadThroughViews() throws IOException {
+		byte[] bytes = new byte[20000];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+		ann.setDataFromStream(new ByteArrayInputStream(bytes));
+		assertArrayEquals(bytes, ann.getData());
+
+		ByteBuffer buffer = ann.dataBuffer();
+		assertTrue(buffer.isReadOnly());
+		assertEquals(bytes.length, buffer.remaining());
+		assertEquals(bytes[19999], buffer.get(19999));
+
+		try (InputStream in = ann.openDataStream()) {
+			assertArrayEquals(bytes, IOUtils.toByteArray(in));
+		}
+
+		ann.setData(null);
+		assertNull(ann.dataBuffer());
+		assertNull(ann.openDataStream());
+		ann.setDataFromStream(null);
+		assertNull(ann.getData());
+	}
+
 }
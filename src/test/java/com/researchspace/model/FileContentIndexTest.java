@@ -0,0 +1,137 @@
+package com.researchspace.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FileContentIndexTest {
+
+	// SHA-256 of "abc"
+	private static final String ABC_HASH = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+	private FileStoreRoot root = new FileStoreRoot("/somewhere/file_store/");
+	private FileContentIndex index;
+	private long nextId = 1;
+
+	@BeforeEach
+	public void setUp() {
+		index = new FileContentIndex();
+	}
+
+	@Test
+	public void uploadsOfSameContentsShareStoredFile() {
+		FileProperty stored = createFileProperty("/a/stored.txt", ABC_HASH);
+		assertTrue(index.register(stored));
+
+		FileProperty upload = createFileProperty("/b/upload.txt", ABC_HASH.toUpperCase());
+		assertTrue(index.resolveUpload(upload));
+		assertEquals("/a/stored.txt", upload.getRelPath());
+		// not referenced until registered
+		assertEquals(1, index.getReferenceCount(stored));
+		assertTrue(index.register(upload));
+		assertEquals(2, index.getReferenceCount(stored));
+		assertEquals(1, index.size());
+
+		// a separately stored copy isn't shared, or deleted
+		FileProperty copy = createFileProperty("/c/copy.txt", ABC_HASH);
+		assertFalse(index.register(copy));
+		assertFalse(index.release(copy));
+		assertEquals(2, index.getReferenceCount(stored));
+
+		// different contents, or no hash, aren't resolved to the stored file
+		FileProperty other = createFileProperty("/d/other.txt", "1234");
+		assertFalse(index.resolveUpload(other));
+		assertEquals("/d/other.txt", other.getRelPath());
+		FileProperty noHash = createFileProperty("/e/nohash.txt", null);
+		assertFalse(index.resolveUpload(noHash));
+		assertEquals(0, index.getReferenceCount(noHash));
+		assertFalse(index.release(noHash));
+
+		assertFalse(index.release(upload));
+		assertTrue(index.release(stored));
+		assertEquals(0, index.getReferenceCount(stored));
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	public void registeringAgainDoesNotAddReferences() {
+		FileProperty stored = createFileProperty("/a/stored.txt", ABC_HASH);
+		FileProperty upload = createFileProperty("/a/stored.txt", ABC_HASH);
+		assertTrue(index.register(stored));
+		assertTrue(index.register(upload));
+		// e.g. rebuilding the index
+		assertTrue(index.register(stored));
+		assertTrue(index.register(upload));
+		assertEquals(2, index.getReferenceCount(stored));
+
+		assertFalse(index.release(stored));
+		assertFalse(index.release(stored));
+		assertTrue(index.release(upload));
+		assertEquals(0, index.size());
+
+		FileProperty unsaved = createFileProperty("/b/unsaved.txt", ABC_HASH);
+		unsaved.setId(null);
+		assertThrows(IllegalArgumentException.class, () -> index.register(unsaved));
+	}
+
+	@Test
+	public void unknownFilesAreNotReleased() {
+		// e.g. after a restart, before the index is rebuilt
+		FileProperty stored = createFileProperty("/a/stored.txt", ABC_HASH);
+		assertFalse(index.release(stored));
+
+		// an upload that failed to be stored was never registered
+		FileProperty failedUpload = createFileProperty("/b/failed.txt", ABC_HASH);
+		assertFalse(index.resolveUpload(failedUpload));
+		assertEquals(0, index.size());
+		FileProperty nextUpload = createFileProperty("/c/next.txt", ABC_HASH);
+		assertFalse(index.resolveUpload(nextUpload));
+		assertEquals("/c/next.txt", nextUpload.getRelPath());
+	}
+
+	@Test
+	public void verifyFindsFilesNotMatchingTheirHash() {
+		FileProperty good = createFileProperty("/a/good.txt", ABC_HASH);
+		FileProperty bad = createFileProperty("/a/bad.txt", "1234");
+		FileProperty missing = createFileProperty("/a/missing.txt", "5678");
+		index.register(good);
+		index.register(bad);
+		index.register(missing);
+
+		Map<String, String> contents = new HashMap<>();
+		contents.put("/a/good.txt", "abc");
+		contents.put("/a/bad.txt", "abc");
+		List<FileProperty> failed = index.verify(fp -> {
+			String content = contents.get(fp.getRelPath());
+			if (content == null) {
+				throw new IOException("not found");
+			}
+			return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+		});
+		assertEquals(2, failed.size());
+		assertTrue(failed.contains(bad));
+		assertTrue(failed.contains(missing));
+	}
+
+	private FileProperty createFileProperty(String relPath, String hash) {
+		FileProperty fp = new FileProperty();
+		fp.setRoot(root);
+		fp.setRelPath(relPath);
+		fp.setContentsHash(hash);
+		fp.setFileSize("3");
+		fp.setId(nextId++);
+		return fp;
+	}
+
+}
@@ -4,7 +4,9 @@ package com.researchspace.model;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -62,6 +64,36 @@ class GroupTest {
 		assertNotNull(group.getMembers());
 	}
 
+	@Test
+	public void membershipLookupsFollowMemberChanges() {
+		group.addMember(pi1, RoleInGroup.PI);
+		group.addMember(u2, RoleInGroup.DEFAULT);
+		assertFalse(group.addMember(new User("u2"), RoleInGroup.RS_LAB_ADMIN));
+		Set<User> members = group.getMembers();
+		assertSame(members, group.getMembers());
+		assertEquals(2, members.size());
+		assertTrue(group.hasMember(u2));
+		assertEquals(RoleInGroup.DEFAULT, group.getRoleForUser(new User("u2")));
+		assertNull(group.getRoleForUser(u3));
+
+		group.addMember(u3, RoleInGroup.DEFAULT);
+		assertNotSame(members, group.getMembers());
+		assertEquals(3, group.getMembers().size());
+		assertTrue(group.hasMember(u3));
+
+		assertTrue(group.removeMember(u2));
+		assertFalse(group.removeMember(u2));
+		assertFalse(group.hasMember(u2));
+		assertNull(group.getUserGroupForUser(u2));
+		assertFalse(group.getMembers().contains(u2));
+
+		// replaced, as when loaded by Hibernate
+		group.setUserGroups(new HashSet<>(group.getUserGroups()));
+		assertTrue(group.hasMember(pi1));
+		assertEquals(RoleInGroup.PI, group.getRoleForUser(pi1));
+		assertEquals(2, group.getMembers().size());
+	}
+
 	@Test
 	public void getSize() {
 		group.addMember(pi1, RoleInGroup.PI);
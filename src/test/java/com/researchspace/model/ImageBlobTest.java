@@ -0,0 +1,81 @@
+package com.researchspace.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+import org.junit.jupiter.api.Test;
+
+public class ImageBlobTest {
+
+	@Test
+	public void dataReadThroughViews() throws IOException {
+		byte[] bytes = new byte[20000];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+		ImageBlob blob = new ImageBlob(new byte[0]);
+		blob.setDataFromStream(new ByteArrayInputStream(bytes));
+		assertArrayEquals(bytes, blob.getData());
+		assertEquals(bytes.length, blob.dataLength());
+
+		ByteBuffer buffer = blob.dataBuffer();
+		assertTrue(buffer.isReadOnly());
+		assertEquals(bytes.length, buffer.remaining());
+		assertEquals(bytes[19999], buffer.get(19999));
+		assertThrows(ReadOnlyBufferException.class, () -> buffer.put(0, (byte) 1));
+
+		byte[] read = new byte[bytes.length];
+		try (InputStream in = blob.openDataStream()) {
+			int total = 0;
+			int n;
+			while ((n = in.read(read, total, read.length - total)) > 0) {
+				total += n;
+			}
+			assertEquals(bytes.length, total);
+		}
+		assertArrayEquals(bytes, read);
+
+		blob.setData(null);
+		assertNull(blob.dataBuffer());
+		assertNull(blob.openDataStream());
+		assertEquals(0, blob.dataLength());
+	}
+
+	@Test
+	public void dataReadFromStreamOfUnknownLength() throws IOException {
+		byte[] bytes = new byte[50000];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) (i * 7);
+		}
+		// doesn't report its length, and returns data in small chunks
+		InputStream chunked = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+			@Override
+			public int available() {
+				return 0;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, 1000));
+			}
+		};
+		ImageBlob blob = new ImageBlob(new byte[0]);
+		blob.setDataFromStream(chunked);
+		assertArrayEquals(bytes, blob.getData());
+		assertEquals(bytes.length, blob.dataLength());
+
+		blob.setDataFromStream(new ByteArrayInputStream(new byte[0]));
+		assertEquals(0, blob.dataLength());
+	}
+
+}
@@ -1,14 +1,23 @@
 package com.researchspace.model;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -63,6 +72,32 @@ public class RSChemElementTest {
 		assertFalse(ele.isMoleculeOrMultiStepReaction());
 	}
 
+	@Test
+	public void dataImageReadThroughViews() throws IOException {
+		byte[] bytes = new byte[20000];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+		ele.setDataImageFromStream(new ByteArrayInputStream(bytes));
+		assertArrayEquals(bytes, ele.getDataImage());
+
+		ByteBuffer buffer = ele.dataImageBuffer();
+		assertTrue(buffer.isReadOnly());
+		assertEquals(bytes.length, buffer.remaining());
+		assertEquals(bytes[19999], buffer.get(19999));
+		assertThrows(ReadOnlyBufferException.class, () -> buffer.put(0, (byte) 1));
+
+		try (InputStream in = ele.openDataImageStream()) {
+			assertArrayEquals(bytes, IOUtils.toByteArray(in));
+		}
+
+		ele.setDataImage(null);
+		assertNull(ele.dataImageBuffer());
+		assertNull(ele.openDataImageStream());
+		ele.setDataImageFromStream(null);
+		assertNull(ele.getDataImage());
+	}
+
 	private void setChemELementProperties() {
 		ele.setChemElements("{()}");
 		ele.setId(1L);
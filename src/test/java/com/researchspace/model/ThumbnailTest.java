@@ -8,7 +8,13 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -89,4 +95,93 @@ public class ThumbnailTest {
 		Thumbnail fromURL = Thumbnail.fromURL(invalidRotation);
 		assertEquals(0, fromURL.getRotation());
 	}
+
+	@Test
+	public void fromURLSameAsSeparateRegexScans() {
+		List<String> urls = new ArrayList<>(Arrays.asList(thumbURL, invalidRotation, chemthumbURL, "",
+				"/thumbnail/data?sourceId=1", "/thumbnail/data?sourceParentId=1", "sourceParentId=2&sourceId=3",
+				"sourceParentId=&sourceParentId=4&sourceId=x&sourceId=5&width=&width=6&maxheight=7&height=8",
+				"sourceParentId=1&sourceId=2&rotation=4&rotation=2", "sourceParentId=1&sourceId=2&rotation=3x",
+				"sourceParentId=1&sourceId=2&rotation=03", "sourceParentId=1&sourceId=2&rotation=",
+				"sourceParentId=1&sourceId=2&rotation=1&revision=9&revision=10",
+				"sourceParentId=1&sourceId=2&sourceType=CHEM_1", "sourceParentId=1&sourceId=2&sourceType=chem",
+				"sourceParentId=1&sourceId=2&sourceType=&sourceType=CHEM", "sourceParentId=1&sourceId=2&width=20000",
+				"sourceParentId=99999999999999999999", "sourceParentId=1&sourceId=9223372036854775807",
+				"sourceParentId=1&sourceId=2&height=2147483648", "sourceParentId=1&amp;sourceId=2&amp;rotation=1"));
+		String[] parts = { "sourceParentId=", "sourceId=", "sourceType=", "IMAGE", "CHEM", "width=", "height=",
+				"rotation=", "revision=", "0", "3", "4", "12", "&", "=", "x" };
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			StringBuilder url = new StringBuilder("/thumbnail/data?");
+			for (int j = random.nextInt(20); j >= 0; j--) {
+				url.append(parts[random.nextInt(parts.length)]);
+			}
+			urls.add(url.toString());
+		}
+		for (String url : urls) {
+			assertEquals(describeFromURLWithRegexes(url), describe(() -> Thumbnail.fromURL(url)), url);
+		}
+	}
+
+	@Test
+	public void fromHTMLFindsAllThumbnailURLs() {
+		String html = "<p>text <img src=\"" + thumbURL.replace("&", "&amp;") + "\" class='x'/>"
+				+ "<img src='/thumbnail/data?sourceType=IMAGE&amp;width=5'>"
+				+ "<img src='" + chemthumbURL + "'> /thumbnail/data?sourceParentId=1&sourceId=2&rotation=1</p>";
+		List<Thumbnail> thumbnails = Thumbnail.fromHTML(html).collect(Collectors.toList());
+		assertEquals(3, thumbnails.size());
+		assertEquals(describe(() -> Thumbnail.fromURL(thumbURL)), describe(() -> thumbnails.get(0)));
+		assertEquals(describe(() -> Thumbnail.fromURL(chemthumbURL)), describe(() -> thumbnails.get(1)));
+		assertEquals(1, thumbnails.get(2).getRotation());
+		assertEquals(0, Thumbnail.fromHTML("<p>no thumbnails</p>").count());
+		assertEquals(0, Thumbnail.fromHTML(null).count());
+	}
+
+	private String describe(Supplier<Thumbnail> parse) {
+		try {
+			Thumbnail t = parse.get();
+			return t == null ? "null" : t.getSourceParentId() + " " + t.getSourceId() + " " + t.getSourceType() + " "
+					+ t.getWidth() + " " + t.getHeight() + " " + t.getRotation() + " " + t.getRevision();
+		} catch (RuntimeException e) {
+			return e.getClass().getName() + ": " + e.getMessage();
+		}
+	}
+
+	// Thumbnail.fromURL as originally implemented, with a regex scan per value
+	private String describeFromURLWithRegexes(String url) {
+		return describe(() -> {
+			Thumbnail thum = new Thumbnail();
+			Matcher m = Pattern.compile("sourceParentId=(\\d+)").matcher(url);
+			if (!m.find()) {
+				return null;
+			}
+			thum.setSourceParentId(Long.parseLong(m.group(1)));
+			m = Pattern.compile("sourceId=(\\d+)").matcher(url);
+			if (!m.find()) {
+				return null;
+			}
+			thum.setSourceId(Long.parseLong(m.group(1)));
+			m = Pattern.compile("sourceType=(\\w+)").matcher(url);
+			if (m.find()) {
+				thum.setSourceType(SourceType.valueOf(m.group(1)));
+			}
+			m = Pattern.compile("width=(\\d+)").matcher(url);
+			if (m.find()) {
+				thum.setWidth(Integer.parseInt(m.group(1)));
+			}
+			m = Pattern.compile("height=(\\d+)").matcher(url);
+			if (m.find()) {
+				thum.setHeight(Integer.parseInt(m.group(1)));
+			}
+			m = Pattern.compile("rotation=([0-3])(?![\\d])").matcher(url);
+			if (m.find()) {
+				thum.setRotation(Byte.parseByte(m.group(1)));
+			}
+			m = Pattern.compile("revision=(\\d+)").matcher(url);
+			if (m.find()) {
+				thum.setRevision(Long.parseLong(m.group(1)));
+			}
+			return thum;
+		});
+	}
 }
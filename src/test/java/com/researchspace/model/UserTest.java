@@ -24,6 +24,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.researchspace.Constants;
 import com.researchspace.core.testutil.CoreTestUtils;
 import com.researchspace.model.comms.NotificationType;
 import com.researchspace.model.permissions.ConstraintBasedPermission;
@@ -212,6 +213,30 @@ public class UserTest {
 	
 	}
 
+	@Test
+	public void testIsPermittedSeesRoleAndMembershipChanges() {
+		Permission recordInfo = getMatchingEntityPermissionFromRecord();
+		Role role = new Role(Constants.PI_ROLE);
+		u1.addRole(Role.USER_ROLE);
+		u1.addRole(role);
+		assertFalse(u1.isPermitted(recordInfo, true));
+		// permission added to a role the user already has
+		role.addPermission(createAndConfigureAPermission());
+		assertTrue(u1.isPermitted(recordInfo, true));
+		assertTrue(u1.removeRole(role));
+		assertFalse(u1.isPermitted(recordInfo, true));
+
+		gp1.addPermission(createAndConfigureAPermission());
+		gp1.addMember(u1);
+		assertTrue(u1.isPermitted(recordInfo, true));
+		gp1.removeMember(u1);
+		assertFalse(u1.isPermitted(recordInfo, true));
+
+		// changes made directly to the collections are also seen
+		u1.getRoles().add(role);
+		assertTrue(u1.isPermitted(recordInfo, false));
+	}
+
 	private EntityPermission getMatchingEntityPermissionFromRecord() {
 		EntityPermission ep = new EntityPermission(PermissionDomain.RECORD,
 				PermissionType.READ);
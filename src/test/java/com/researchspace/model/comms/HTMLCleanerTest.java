@@ -6,6 +6,10 @@ import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.safety.Safelist;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -68,4 +72,40 @@ public class HTMLCleanerTest {
 		
 	}
 
+	@Test
+	public void cleanHTMLStrictSameAsSeparateCleanParseAndRegexPasses() {
+		String[] messages = { "Plain text with no html", "Plain text \n with newline\r\nand\rmore",
+				"Simple html <a href='http://www.google.com'>Google</a>",
+				"<a href='http://www.google.com' target='_top' class='x'>http://www.google.com</a>",
+				"Simple html <script>alert(1);</script>", "Simple link \nhttp://www.google.com ",
+				"http://www.google.com google http://www.bbc.co.uk bbc", "https://a.com?x=1&y=<2>",
+				"<p>para http://a.com</p><p>two</p><ul><li>one</li><li>https://b.com/path</li></ul>",
+				"<b>bold</b> <i>it</i> <img src='http://a.com/x.png'> <blockquote>q</blockquote>",
+				"<div onclick='x()'>div http://c.com</div>", "  http://lead.com", ">http://a.com>http://b.com" };
+		for (String message : messages) {
+			for (boolean wrap : new boolean[] { true, false }) {
+				assertEquals(message, cleanHTMLStrictWithSeparatePasses(message, wrap), rtu.cleanHTMLStrict(message, wrap));
+			}
+		}
+	}
+
+	// the cleaner's original implementation
+	private String cleanHTMLStrictWithSeparatePasses(String text, boolean wrapURLSInATags) {
+		text = text.replaceAll("\r\n|\n|\r", "<br/> ");
+		text = Jsoup.clean(text, Safelist.basic());
+		Document d = Jsoup.parse(text);
+		for (Element el : d.select("a")) {
+			el.attr("target", "_blank");
+			el.addClass("word-wrap");
+		}
+		text = d.select("body").html();
+		if (wrapURLSInATags) {
+			text = text.replaceAll("^(https?://[^<>\\s]+)",
+					" <a href='$1' rel='nofollow' class='word-wrap' target='_blank'>$1</a>");
+			text = text.replaceAll("(\\s|>)(https?://[^<>\\s]+)",
+					"$1<a href='$2' rel='nofollow' class='word-wrap' target='_blank'>$2</a>");
+		}
+		return text;
+	}
+
 }
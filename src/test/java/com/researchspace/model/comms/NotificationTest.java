@@ -1,12 +1,16 @@
 package com.researchspace.model.comms;
 
+import static com.researchspace.core.util.TransformerUtils.toList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import org.junit.jupiter.api.Test;
 
 import com.researchspace.model.comms.data.ArchiveExportNotificationData;
+import com.researchspace.model.comms.data.NotificationData;
 
 public class NotificationTest {
 	
@@ -40,4 +44,32 @@ public class NotificationTest {
 		assertNotNull(retrievedDataWithLink);
 		assertEquals(dataWithLink.getDownloadLink(), retrievedDataWithLink.getDownloadLink());
 	}
+
+	@Test
+	public void notificationDataObjectParsedOnceUntilDataChanges() {
+		Notification archiveNot = new Notification();
+		archiveNot.setNotificationType(NotificationType.ARCHIVE_EXPORT_COMPLETED);
+		ArchiveExportNotificationData data = new ArchiveExportNotificationData();
+		data.setDownloadLink("https://testArchiveLink");
+		archiveNot.setNotificationDataObject(data);
+
+		NotificationData retrieved = archiveNot.getNotificationDataObject();
+		assertEquals(data, retrieved);
+		assertSame(retrieved, archiveNot.getNotificationDataObject());
+
+		// changed data is parsed again
+		archiveNot.setNotificationData("{\"downloadLink\":\"https://otherLink\"}");
+		ArchiveExportNotificationData changed = (ArchiveExportNotificationData) archiveNot.getNotificationDataObject();
+		assertNotSame(retrieved, changed);
+		assertEquals("https://otherLink", changed.getDownloadLink());
+
+		// as is data of a changed type
+		archiveNot.setNotificationType(NotificationType.NOTIFICATION_DOCUMENT_DELETED);
+		assertNull(archiveNot.getNotificationDataObject());
+
+		Notification noData = new Notification();
+		noData.setNotificationType(NotificationType.ARCHIVE_EXPORT_COMPLETED);
+		archiveNot.setNotificationType(NotificationType.ARCHIVE_EXPORT_COMPLETED);
+		assertEquals(toList(changed, null), Notification.getNotificationDataObjects(toList(archiveNot, noData)));
+	}
 }
@@ -13,7 +13,11 @@ import com.researchspace.model.FileProperty;
 import com.researchspace.model.User;
 import com.researchspace.model.core.GlobalIdPrefix;
 import com.researchspace.model.inventory.Container.ContainerType;
+import com.researchspace.model.inventory.Container.LocationCoords;
 import com.researchspace.model.record.TestFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -116,6 +120,45 @@ public class ContainerTest {
     assertEquals(1, gridContainer6by4.getLocations().size());
   }
 
+  @Test
+  void bulkAddContentToGridContainer() throws Exception {
+    Container plate = Container.createGridContainer(24, 16, false, true, false);
+    plate.setId(4L);
+    SubSample alreadyStored = new SubSample();
+    plate.addToNewLocationWithCoords(alreadyStored, 1, 1);
+
+    Map<LocationCoords, SubSample> toAdd = new LinkedHashMap<>();
+    for (int x = 1; x <= 24; x++) {
+      for (int y = 1; y <= 16; y++) {
+        toAdd.put(new LocationCoords(x, y), new SubSample());
+      }
+    }
+    // nothing stored if any location is invalid
+    IllegalArgumentException iae = assertThrows(IllegalArgumentException.class,
+        () -> plate.addToLocations(toAdd));
+    assertTrue(iae.getMessage().startsWith("Location (1,1) is already taken"));
+    assertEquals(1, plate.getContentCount());
+    assertEquals(1, plate.getLocations().size());
+
+    plate.removeStoredRecord(plate.getLocations().get(0));
+    assertEquals(0, plate.getContentCount());
+    List<ContainerLocation> stored = plate.addToLocations(toAdd);
+    assertEquals(384, stored.size());
+    assertEquals(384, plate.getContentCount());
+    assertEquals(384, plate.getContentCountSubSamples());
+    ContainerLocation location = plate.findSavedLocationByIdOrCoordinates(null, 5, 7).get();
+    assertEquals(toAdd.get(new LocationCoords(5, 7)), location.getStoredSubSample());
+
+    // found by id once saved
+    location.setId(10L);
+    assertEquals(location, plate.findSavedLocationByIdOrCoordinates(10L, null, null).get());
+    assertFalse(plate.findSavedLocationByIdOrCoordinates(11L, null, null).isPresent());
+
+    plate.removeStoredRecord(location);
+    assertEquals(383, plate.getContentCount());
+    assertFalse(plate.findSavedLocationByIdOrCoordinates(10L, 5, 7).isPresent());
+  }
+
   @Test
   void addContentToImageContainer() throws Exception {
 
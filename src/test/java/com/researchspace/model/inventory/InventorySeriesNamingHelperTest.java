@@ -2,6 +2,9 @@ package com.researchspace.model.inventory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
 import org.junit.Test;
 
 public class InventorySeriesNamingHelperTest {
@@ -23,4 +26,33 @@ public class InventorySeriesNamingHelperTest {
 		assertEquals("sampleName-05.15", InventorySeriesNamingHelper.getSerialNameForSubSampleNoZeroPrefix("sampleName-05", 15));
 	}
 
+	@Test
+	public void generatedNamesSameAsFormattedNames() {
+		Integer[] totals = { null, 0, 1, 9, 10, 99, 100, 101, 999, 1000, 12345, -5, -100, Integer.MAX_VALUE,
+				Integer.MIN_VALUE };
+		int[] counts = { 0, 1, 5, 9, 10, 15, 99, 100, 1000, 123456, -1, -15, -1000, Integer.MAX_VALUE,
+				Integer.MIN_VALUE };
+		for (Integer total : totals) {
+			int suffixLength = Math.max(2, String.valueOf(total).length());
+			InventorySeriesNameGenerator samples = InventorySeriesNamingHelper.getSampleNameGenerator("sample", total);
+			InventorySeriesNameGenerator subSamples = InventorySeriesNamingHelper.getSubSampleNameGenerator(null, total);
+			for (int count : counts) {
+				String expectedSample = String.format("%s-%0" + suffixLength + "d", "sample", count);
+				assertEquals(expectedSample, InventorySeriesNamingHelper.getSerialNameForSample("sample", count, total));
+				assertEquals(expectedSample, samples.getName(count));
+				assertEquals("x" + expectedSample, samples.appendName(count, new StringBuilder("x")).toString());
+
+				String expectedSubSample = String.format("%s.%0" + suffixLength + "d", null, count);
+				assertEquals(expectedSubSample, InventorySeriesNamingHelper.getSerialNameForSubSample(null, count, total));
+				assertEquals(expectedSubSample, subSamples.getName(count));
+			}
+		}
+		for (int count : counts) {
+			assertEquals(String.format("%s.%d", "ss", count),
+					InventorySeriesNamingHelper.getSerialNameForSubSampleNoZeroPrefix("ss", count));
+		}
+		assertEquals(Arrays.asList("s.098", "s.099", "s.100"),
+				InventorySeriesNamingHelper.getSubSampleNameGenerator("s", 100).names(98, 100).collect(Collectors.toList()));
+	}
+
 }
@@ -20,11 +20,14 @@ import com.researchspace.model.inventory.field.InventoryRadioFieldDef;
 import com.researchspace.model.inventory.field.InventoryTextField;
 import com.researchspace.model.record.TestFactory;
 import com.researchspace.model.units.QuantityInfo;
+import com.researchspace.model.units.QuantityUtils;
 import com.researchspace.model.units.RSUnitDef;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -79,7 +82,8 @@ public class SampleTest {
 		
 		Set<String> toIgnore = TransformerUtils.toSet("subSamples", "activeSubSamples", "id",
 				"activeExtraFields", "extraFields", "activeBarcodes", "barcodes", "activeIdentifiers", "identifiers",
-				"sample", "editInfo", "attachedFiles", "files");
+				"sample", "editInfo", "attachedFiles", "files", "activeSubSamplesReturned",
+				"totalledSubSampleQuantities", "activeSubSamplesTotal");
 		ModelTestUtils.assertCopiedFieldsAreEqual(copy, sample, toIgnore,
 				TransformerUtils.toList(Sample.class, SampleEntity.class, InventoryRecord.class));
 		assertNull(copy.getGlobalIdentifier());
@@ -287,4 +291,41 @@ public class SampleTest {
 		assertEquals(1, template.getActiveFields().get(0).getColumnIndex());
 	}
 
+	@Test
+	@DisplayName("Active subsamples and total quantity kept up to date as subsamples are added and changed")
+	public void activeSubSamplesAndTotalQuantity() {
+		List<SubSample> initialActive = sample.getActiveSubSamples();
+		List<SubSample> added = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			added.add(new SubSample(sample));
+		}
+		sample.addSubSamples(added);
+		assertEquals(101, sample.getActiveSubSamplesCount());
+		assertEquals(101, sample.getActiveSubSamples().size());
+		// lists already returned aren't changed
+		assertEquals(1, initialActive.size());
+
+		for (int i = 0; i < added.size(); i++) {
+			added.get(i).setQuantity(QuantityInfo.of(BigDecimal.valueOf(i + 1), i % 2 == 0 ? RSUnitDef.MILLI_LITRE : RSUnitDef.LITRE));
+			assertEquals(expectedTotal(), sample.getTotalQuantity());
+		}
+		added.get(10).setQuantity(QuantityInfo.of(BigDecimal.valueOf(0.5), RSUnitDef.MICRO_LITRE));
+		assertEquals(expectedTotal(), sample.getTotalQuantity());
+
+		added.get(20).setRecordDeleted(true);
+		sample.refreshActiveSubSamples();
+		assertEquals(100, sample.getActiveSubSamplesCount());
+		sample.recalculateTotalQuantity();
+		assertEquals(expectedTotal(), sample.getTotalQuantity());
+		added.get(30).setQuantity(QuantityInfo.of(BigDecimal.valueOf(2), RSUnitDef.LITRE));
+		assertEquals(expectedTotal(), sample.getTotalQuantity());
+	}
+
+	// total of active subsample quantities, summed again
+	private QuantityInfo expectedTotal() {
+		List<QuantityInfo> quantities = sample.getActiveSubSamples().stream().map(SubSample::getQuantity)
+				.filter(q -> q != null).collect(Collectors.toList());
+		return quantities.size() == 1 ? quantities.get(0) : new QuantityUtils().sum(quantities);
+	}
+
 }
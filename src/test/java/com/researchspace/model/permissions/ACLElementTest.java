@@ -2,8 +2,10 @@ package com.researchspace.model.permissions;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import org.apache.commons.lang3.SerializationUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -78,4 +80,30 @@ public class ACLElementTest {
 		
 	}
 
+	@Test
+	public void testPermitsActionUsesResolvedActions() {
+		el1 = new ACLElement("G1", permResolver.resolvePermission("RECORD:WRITE,DELETE:"));
+		assertTrue(el1.permitsAction(PermissionType.WRITE));
+		assertTrue(el1.permitsAction(PermissionType.DELETE));
+		// write implies read
+		assertTrue(el1.permitsAction(PermissionType.READ));
+		assertFalse(el1.permitsAction(PermissionType.COPY));
+
+		el2 = new ACLElement("G1", permResolver.resolvePermission("RECORD:READ:"));
+		assertTrue(el2.permitsAction(PermissionType.READ));
+		assertFalse(el2.permitsAction(PermissionType.WRITE));
+	}
+
+	@Test
+	public void testResolvedStateSurvivesSerialization() {
+		Group g = new Group("any", TestFactory.createAnyUser("any"));
+		el1 = ACLElement.createRoleRestrictedGroupACL(g, permResolver.resolvePermission("RECORD:WRITE:"),
+				RoleInGroup.PI);
+		el2 = SerializationUtils.roundtrip(el1);
+		assertEquals(el1, el2);
+		assertTrue(el2.permitsAction(PermissionType.READ));
+		assertEquals(1, el2.getRoles().size());
+		assertTrue(el2.getRoles().contains(RoleInGroup.PI));
+	}
+
 }
@@ -0,0 +1,122 @@
+package com.researchspace.model.permissions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompiledPermissionTest {
+
+	static final String[] PERMISSIONS = new String[] { "RECORD:READ:", "RECORD:WRITE:", "RECORD:READ,DELETE:",
+			"ALL:READ:", "FORM:READ,WRITE,SHARE:", "RECORD:READ:id=1,2,3", "RECORD:WRITE:property_owner=user1",
+			"RECORD:READ:property_name=a,b,c", "GROUP:WRITE:group=g1", "COMMUNITY:READ:community=3",
+			"RECORD:READ:location=/a/b/*", "RECORD:READ,WRITE:id=2&property_owner=user1&group=g1&location=/a/*" };
+
+	ConstraintPermissionResolver resolver;
+	List<EntityPermission> toTest;
+
+	@Before
+	public void setUp() throws Exception {
+		resolver = new ConstraintPermissionResolver();
+		toTest = new ArrayList<>();
+		for (PermissionDomain domain : PermissionDomain.values()) {
+			for (PermissionType action : PermissionType.values()) {
+				toTest.add(new EntityPermission(domain, action));
+			}
+		}
+		for (long id = 0; id < 4; id++) {
+			for (String owner : new String[] { "user1", "user2" }) {
+				for (String location : new String[] { null, "/a/b/c", "/x" }) {
+					for (String group : new String[] { null, "g1", "g2" }) {
+						for (PermissionType action : new PermissionType[] { PermissionType.READ,
+								PermissionType.WRITE }) {
+							EntityPermission ep = new EntityPermission(PermissionDomain.RECORD, action);
+							ep.setId(id);
+							ep.addPropertyConstraint(new PropertyConstraint("owner", owner));
+							ep.addPropertyConstraint(new PropertyConstraint("name", "b"));
+							if (location != null) {
+								ep.setLocationConstraint(new LocationConstraint(location));
+							}
+							if (group != null) {
+								ep.getGroupConstraints().add(new GroupConstraint(group));
+							}
+							toTest.add(ep);
+						}
+					}
+				}
+			}
+		}
+		EntityPermission community = new EntityPermission(PermissionDomain.COMMUNITY, PermissionType.READ);
+		community.getCommunityConstraints().add(new CommunityConstraint(3));
+		toTest.add(community);
+	}
+
+	@Test
+	public void testCompiledMatchesUncompiled() {
+		for (String permString : PERMISSIONS) {
+			ConstraintBasedPermission cbp = resolver.resolvePermission(permString);
+			CompiledPermission compiled = cbp.compile();
+			for (EntityPermission ep : toTest) {
+				assertEquals(permString + " vs " + ep.getDomain() + ":" + ep.getAction() + ":" + ep.getId(),
+						cbp.implies(ep), compiled.implies(ep));
+			}
+		}
+	}
+
+	@Test
+	public void testDisabledPermissionImpliesNothing() {
+		ConstraintBasedPermission cbp = resolver.resolvePermission("ALL:READ,WRITE:");
+		cbp.setEnabled(false);
+		CompiledPermission compiled = cbp.compile();
+		assertFalse(compiled.implies(new EntityPermission(PermissionDomain.RECORD, PermissionType.READ)));
+	}
+
+	@Test
+	public void testCompiledIsSnapshot() {
+		ConstraintBasedPermission cbp = resolver.resolvePermission("RECORD:READ:");
+		CompiledPermission compiled = cbp.compile();
+		cbp.addPermissionType(PermissionType.DELETE);
+		assertFalse(compiled.implies(new EntityPermission(PermissionDomain.RECORD, PermissionType.DELETE)));
+		assertEquals("RECORD:READ:", compiled.getString());
+		assertTrue(compiled.implies(resolver.resolvePermission("RECORD:READ:")));
+	}
+
+	@Test
+	public void testConcurrentEvaluation() throws Exception {
+		CompiledPermission compiled = resolver.resolvePermission("RECORD:WRITE:id=2&group=g1").compile();
+		EntityPermission allowed = new EntityPermission(PermissionDomain.RECORD, PermissionType.READ);
+		allowed.setId(2L);
+		allowed.getGroupConstraints().add(new GroupConstraint("g1"));
+		EntityPermission denied = new EntityPermission(PermissionDomain.RECORD, PermissionType.READ);
+		denied.setId(3L);
+		denied.getGroupConstraints().add(new GroupConstraint("g1"));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(() -> {
+					boolean ok = true;
+					for (int j = 0; j < 10_000; j++) {
+						ok &= compiled.implies(allowed) && !compiled.implies(denied);
+					}
+					return ok;
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
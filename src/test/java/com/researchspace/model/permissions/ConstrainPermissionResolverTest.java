@@ -3,6 +3,7 @@ package com.researchspace.model.permissions;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.After;
@@ -87,4 +88,51 @@ public class ConstrainPermissionResolverTest {
 		 ConstraintBasedPermission toCheckObject2 = resolver.resolvePermission(toCheck2);
 		 assertFalse(userObject.implies(toCheckObject2.getAsEntityPermission()));	 
 	}
+
+	@Test
+	public void testResolvedPermissionsAreCachedButIndependent() {
+		ConstraintBasedPermission p1 = resolver.resolvePermission(TEST_STRING3);
+		assertEquals(0, resolver.getCacheHits());
+		assertEquals(1, resolver.getCacheMisses());
+		ConstraintBasedPermission p2 = resolver.resolvePermission(TEST_STRING3);
+		assertEquals(1, resolver.getCacheHits());
+		assertEquals(1, resolver.getCacheMisses());
+
+		assertNotSame(p1, p2);
+		assertEquals(p1, p2);
+		// modifying a resolved permission doesn't affect others
+		p1.removePermissionType(PermissionType.WRITE);
+		p1.getPropertyConstraints().get("name").setValue("bob");
+		ConstraintBasedPermission p3 = resolver.resolvePermission(TEST_STRING3);
+		assertTrue(p3.getActions().contains(PermissionType.WRITE));
+		assertEquals("fred", p3.getPropertyConstraints().get("name").getValue());
+		assertEquals(p2, p3);
+	}
+
+	@Test
+	public void testPopulatePermissionMatchesResolve() {
+		for (String toTest : TESTSTRINGS) {
+			ConstraintBasedPermission populated = ConstraintPermissionResolver
+					.populatePermssion(new ConstraintBasedPermission(), toTest);
+			PermissionTestUtils.assertPermissionsAreEquivalent(resolver.resolvePermission(toTest), populated);
+		}
+	}
+
+	@Test
+	public void testCacheIsBounded() {
+		resolver = new ConstraintPermissionResolver(2);
+		resolver.resolvePermission(TEST_STRING1);
+		resolver.resolvePermission(TEST_STRING2);
+		assertEquals(0, resolver.getCacheEvictions());
+		resolver.resolvePermission(TEST_STRING4);
+		assertEquals(1, resolver.getCacheEvictions());
+		assertEquals(3, resolver.getCacheMisses());
+
+		// caching can be disabled
+		resolver = new ConstraintPermissionResolver(0);
+		resolver.resolvePermission(TEST_STRING1);
+		resolver.resolvePermission(TEST_STRING1);
+		assertEquals(0, resolver.getCacheHits());
+		assertEquals(2, resolver.getCacheMisses());
+	}
 }
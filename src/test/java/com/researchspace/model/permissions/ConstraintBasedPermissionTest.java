@@ -255,7 +255,8 @@ public class ConstraintBasedPermissionTest {
 		
 		assertEquals(NUM_INDIVIDUAL_PERMS, allPerms.size());
 		new ConstraintPermissionResolver().flattenRecordReadWritePermissions(allPerms);
-		final int EXPECTED_PERM_COUNT_AFTER_FLATTENING = 18;
+		// one READ and one WRITE permission
+		final int EXPECTED_PERM_COUNT_AFTER_FLATTENING = 2;
 		assertEquals(EXPECTED_PERM_COUNT_AFTER_FLATTENING, allPerms.size());
 		
 		inf.setObjectPermissions(new HashSet<>(allPerms));
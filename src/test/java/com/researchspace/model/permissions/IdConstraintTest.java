@@ -66,6 +66,54 @@ public class IdConstraintTest {
 		 assertEquals("id=1",constraint.getString());
 	}
 	
+	@Test
+	public void testLargeIdSet() {
+		final int NUM_IDS = 50_000;
+		ids = new HashSet<>();
+		for (long i = 0; i < NUM_IDS; i++) {
+			ids.add(i * 3);
+		}
+		constraint = new IdConstraint(ids);
+		assertEquals(NUM_IDS, constraint.size());
+		for (long i = 0; i < NUM_IDS * 3; i++) {
+			assertEquals(i % 3 == 0, constraint.satisfies(i));
+		}
+		assertFalse(constraint.satisfies(-1L));
+		assertFalse(constraint.satisfies(Long.MIN_VALUE));
+		assertFalse(constraint.satisfies(null));
+	}
+
+	@Test
+	public void testDuplicatesAndExtremeValuesFromArray() {
+		long[] array = new long[40];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = i % 20;
+		}
+		array[0] = Long.MIN_VALUE;
+		array[1] = Long.MAX_VALUE;
+		constraint = new IdConstraint(array);
+		assertEquals(20, constraint.size());
+		assertTrue(constraint.satisfies(Long.MIN_VALUE));
+		assertTrue(constraint.satisfies(Long.MAX_VALUE));
+		assertTrue(constraint.satisfies(19L));
+		assertFalse(constraint.satisfies(20L));
+		assertEquals(Long.MIN_VALUE, constraint.getId().iterator().next().longValue());
+	}
+
+	@Test
+	public void testStringRoundTripsThroughResolver() {
+		ids = new HashSet<>();
+		for (long i = 1000; i > 0; i--) {
+			ids.add(i * 7);
+		}
+		constraint = new IdConstraint(ids);
+		ConstraintBasedPermission cbp = new ConstraintBasedPermission(PermissionDomain.RECORD, PermissionType.READ);
+		cbp.setIdConstraint(constraint);
+		ConstraintBasedPermission resolved = new ConstraintPermissionResolver().resolvePermission(cbp.getString());
+		assertEquals(constraint, resolved.getIdConstraint());
+		assertEquals(cbp.getString(), resolved.getString());
+	}
+
 	void createConstraintFromLongArray(Long [] array){
 	 ids = new HashSet<>(Arrays.asList(array));
 
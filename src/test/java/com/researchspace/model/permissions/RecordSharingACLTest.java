@@ -214,4 +214,40 @@ public class RecordSharingACLTest {
 		assertEquals(0, acl.getNumPermissions());
 		assertEquals("", acl.getString());
 	}
+
+	@Test
+	public void testPrincipalLookupKeptInSyncWithElements() {
+		RecordSharingACL acl = new RecordSharingACL();
+		acl.addACLElement(alice, read);
+		// builds lookup
+		assertTrue(acl.isPermitted(alice, PermissionType.READ));
+		assertFalse(acl.isPermitted(piUserInGroup, PermissionType.READ));
+
+		// additions after lookup built are visible
+		acl.addACLElement(g1, write);
+		assertTrue(acl.isPermitted(piUserInGroup, PermissionType.READ));
+		ACLElement piOnly = ACLElement.createRoleRestrictedGroupACL(g2, copy, RoleInGroup.PI);
+		acl.addACLElement(piOnly);
+		// alice is a default user in g2
+		assertFalse(acl.isPermitted(alice, PermissionType.COPY));
+
+		// removals are visible
+		acl.removeACLElement(g1, write);
+		assertFalse(acl.isPermitted(piUserInGroup, PermissionType.READ));
+		acl.removeACLsforUserOrGroup(alice);
+		assertFalse(acl.isPermitted(alice, PermissionType.READ));
+
+		// resetting from string replaces everything
+		acl.setAcl(alice.getUsername() + "=RECORD:DELETE:&" + g1.getUniqueName() + "=RECORD:SHARE:");
+		assertTrue(acl.isPermitted(alice, PermissionType.DELETE));
+		assertTrue(acl.isPermitted(piUserInGroup, PermissionType.SHARE));
+		assertFalse(acl.isPermitted(alice, PermissionType.COPY));
+	}
+
+	@Test
+	public void testGroupNamePrefixIsNotAMatch() {
+		RecordSharingACL acl = new RecordSharingACL();
+		acl.setAcl(g1.getUniqueName() + "X=RECORD:READ:");
+		assertFalse(acl.isPermitted(alice, PermissionType.READ));
+	}
 }
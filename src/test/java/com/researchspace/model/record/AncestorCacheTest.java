@@ -0,0 +1,97 @@
+package com.researchspace.model.record;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.researchspace.model.User;
+import com.researchspace.model.core.RecordType;
+
+public class AncestorCacheTest {
+
+	private static final int DEPTH = 20;
+
+	private User anyuser = TestFactory.createAnyUser("any");
+	private List<Folder> chain1, chain2;
+	private StructuredDocument sd;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		chain1 = createChain("a");
+		chain2 = createChain("b");
+		sd = TestFactory.createAnySD();
+		// in 2 hierarchies at once, like a shared document
+		chain1.get(DEPTH - 1).addChild(sd, anyuser);
+		chain2.get(DEPTH - 1).addChild(sd, anyuser);
+	}
+
+	private List<Folder> createChain(String prefix) {
+		List<Folder> chain = new ArrayList<>();
+		Folder parent = null;
+		for (int i = 0; i < DEPTH; i++) {
+			Folder f = TestFactory.createAFolder(prefix + i, anyuser);
+			if (parent != null) {
+				parent.addChild(f, anyuser);
+			}
+			chain.add(f);
+			parent = f;
+		}
+		return chain;
+	}
+
+	@Test
+	public void ancestorsAreSameWithOrWithoutCache() {
+		List<Folder> uncached = sd.getAllAncestors();
+		assertEquals(2 * DEPTH, uncached.size());
+		try (AncestorCache cache = AncestorCache.open()) {
+			assertEquals(new HashSet<>(uncached), new HashSet<>(sd.getAllAncestors()));
+			assertEquals(new HashSet<>(uncached), new HashSet<>(sd.getAllAncestors()));
+			assertEquals(1, cache.getMisses());
+			assertEquals(1, cache.getHits());
+		}
+		assertNull(AncestorCache.current());
+	}
+
+	@Test
+	public void cacheInvalidatedByFolderTreeChanges() {
+		try (AncestorCache cache = AncestorCache.open()) {
+			assertFalse(sd.hasAncestorOfType(RecordType.ROOT, false));
+			Folder root = TestFactory.createAFolder("root", anyuser);
+			root.addType(RecordType.ROOT);
+			root.addChild(chain1.get(0), anyuser);
+			assertTrue(sd.hasAncestorOfType(RecordType.ROOT, false));
+			assertEquals(2 * DEPTH + 1, sd.getAllAncestors().size());
+
+			chain2.get(DEPTH - 1).removeChild(sd);
+			assertEquals(DEPTH + 1, sd.getAllAncestors().size());
+
+			Folder other = TestFactory.createAFolder("other", anyuser);
+			assertTrue(sd.move(chain1.get(DEPTH - 1), other, anyuser));
+			assertEquals(1, sd.getAllAncestors().size());
+		}
+	}
+
+	@Test
+	public void nestedScopesShareCache() {
+		try (AncestorCache outer = AncestorCache.open()) {
+			try (AncestorCache inner = AncestorCache.open()) {
+				assertSame(outer, inner);
+				sd.getAllAncestors();
+			}
+			assertSame(outer, AncestorCache.current());
+			sd.getAllAncestors();
+			assertEquals(1, outer.getHits());
+		}
+		assertNull(AncestorCache.current());
+	}
+
+}
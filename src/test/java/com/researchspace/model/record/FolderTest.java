@@ -8,9 +8,15 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.researchspace.model.RecordGroupSharing;
 import com.researchspace.model.permissions.ConstraintPermissionResolver;
@@ -254,6 +260,60 @@ public class FolderTest {
 		assertEquals(3, processor.f_count);
 		assertEquals(1, processor.rec_count);
 	}
+	@Test
+	public void processorHandlesDeepTreesAndCycles() {
+		Folder top = TestFactory.createAFolder("top", anyuser);
+		Folder parent = top;
+		for (int i = 0; i < 5000; i++) {
+			Folder child = new Folder();
+			child.setId((long) i);
+			parent.doAdd(child, anyuser, false);
+			parent = child;
+		}
+		// not possible through addChild
+		parent.doAdd(top, anyuser, false);
+		AtomicInteger count = new AtomicInteger();
+		top.process(rc -> count.incrementAndGet() > 0);
+		assertEquals(5001, count.get());
+	}
+
+	@Test
+	public void parallelProcessor() throws InterruptedException {
+		makeNestedFolders();
+		for (int i = 0; i < 200; i++) {
+			Snippet another = TestFactory.createAnySnippet(anyuser);
+			another.setId((long) i);
+			t2.addChild(another, anyuser);
+		}
+		AtomicInteger count = new AtomicInteger();
+		RecordContainerProcessor threadSafe = new RecordContainerProcessor() {
+			public boolean process(BaseRecord rc) {
+				count.incrementAndGet();
+				return true;
+			}
+
+			public boolean isThreadSafe() {
+				return true;
+			}
+		};
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			t1.process(threadSafe, pool);
+			// 3 folders, sd, snippet and 200 snippets
+			assertEquals(205, count.get());
+
+			count.set(0);
+			t1.process(rc -> {
+				count.incrementAndGet();
+				return !rc.equals(t2);
+			}, pool);
+			// not thread-safe, so processed in this thread, skipping t2's contents
+			assertEquals(2, count.get());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
 	@Test
 	public void defaultACLPRopagationPolicyDoesNotPropagatesAnonymousShareAcl() throws InterruptedException {
 		makeNestedFolders();
@@ -464,6 +524,159 @@ public class FolderTest {
 
 	}
 
+	@Test
+	public void lineageMaintainedByFolderTreeChanges() throws InterruptedException {
+		makeNestedFolders();
+		String expected = "|" + t1.getId() + "|" + t2.getId() + "|" + t3.getId() + "|";
+		assertEquals(expected, sd.getLineage());
+		assertEquals(List.of(t1.getId(), t2.getId(), t3.getId()), sd.getLineageIds());
+		assertEquals("|", t1.getLineage());
+		assertTrue(sd.isDescendantOf(t1));
+
+		// moving t2 updates its descendants
+		Folder other = TestFactory.createAFolder("other", anyuser);
+		assertTrue(t2.move(t1, other, anyuser));
+		assertEquals("|" + other.getId() + "|" + t2.getId() + "|" + t3.getId() + "|", sd.getLineage());
+		assertFalse(sd.isDescendantOf(t1));
+		assertTrue(sd.isDescendantOf(other));
+
+		// shared parents don't change the lineage
+		Folder shared = TestFactory.createAFolder("shared", anyuser);
+		shared.addType(RecordType.SHARED_FOLDER);
+		shared.addChild(sd, anyuser);
+		assertEquals("|" + other.getId() + "|" + t2.getId() + "|" + t3.getId() + "|", sd.getLineage());
+
+		t3.removeChild(sd);
+		assertNull(sd.getLineage());
+		shared.removeChild(sd);
+		assertEquals("|", sd.getLineage());
+	}
+
+	@Test
+	public void parentHierarchyFromLineageMatchesSearch() throws InterruptedException {
+		makeNestedFolders();
+		anyuser.setRootFolder(t1);
+		RSPath fromLineage = sd.getParentHierarchyForUser(anyuser);
+		RSPath searched = sd.getShortestPathToParent(t1);
+		assertEquals(4, fromLineage.size());
+		for (int i = 0; i < searched.size(); i++) {
+			assertEquals(searched.get(i), fromLineage.get(i));
+		}
+		assertTrue(sd.isInWorkspace());
+
+		// unknown lineage falls back to searching the tree
+		Folder unsaved = new Folder();
+		t3.addChild(unsaved, anyuser);
+		Folder child = TestFactory.createAFolder("child", anyuser);
+		unsaved.addChild(child, anyuser);
+		assertNull(child.getLineage());
+		assertEquals(5, child.getParentHierarchyForUser(anyuser).size());
+		assertTrue(child.isDescendantOf(t1));
+	}
+
+	@Test
+	public void staleLineageNotUsedForAncestry() throws InterruptedException {
+		makeNestedFolders();
+		// not in t3's children, so not updated when t2 moves
+		Folder notInChildren = TestFactory.createAFolder("notInChildren", anyuser);
+		t3.doAddToParentsOnly(notInChildren, anyuser);
+		Folder other = TestFactory.createAFolder("other", anyuser);
+		t2.pollDescendantLineageUpdates();
+		assertTrue(t2.move(t1, other, anyuser));
+		String stale = notInChildren.getLineage();
+		assertEquals("|" + t1.getId() + "|" + t2.getId() + "|" + t3.getId() + "|", stale);
+
+		assertFalse(notInChildren.isDescendantOf(t1));
+		assertTrue(notInChildren.isDescendantOf(other));
+		anyuser.setRootFolder(other);
+		RSPath path = notInChildren.getParentHierarchyForUser(anyuser);
+		assertEquals(4, path.size());
+		assertEquals(other, path.getFirstElement().get());
+
+		// the updates to apply to the stored lineages correct the stale one
+		List<LineageUpdate> updates = t2.pollDescendantLineageUpdates();
+		assertEquals(2, updates.size());
+		for (LineageUpdate update : updates) {
+			assertTrue(update.getHql().startsWith("update BaseRecord set lineage"));
+			assertEquals(update.getOldPrefix() + "%", update.getParameters().get("oldPrefixPattern"));
+			if (stale.startsWith(update.getOldPrefix())) {
+				stale = update.getNewPrefix() + stale.substring(update.getOldPrefix().length());
+			}
+		}
+		assertEquals(t3.getLineage() + t3.getId() + "|", stale);
+		assertTrue(t2.pollDescendantLineageUpdates().isEmpty());
+	}
+
+	@Test
+	public void recordWithSeveralParentsIsNotDescendant() throws InterruptedException {
+		makeNestedFolders();
+		Folder shared = TestFactory.createAFolder("shared", anyuser);
+		shared.addType(RecordType.SHARED_FOLDER);
+		shared.addChild(sd, anyuser);
+		// the lineage follows the owner parent, but ancestry needs a single parent
+		assertTrue(sd.getLineage().endsWith("|" + t3.getId() + "|"));
+		assertFalse(sd.isDescendantOf(t3));
+		assertFalse(sd.isDescendantOf(t1));
+		assertFalse(sd.isDescendantOf(shared));
+
+		// ancestors above a folder with several parents aren't found, as before
+		Folder extra = TestFactory.createAFolder("extra", anyuser);
+		extra.addChild(t2, anyuser);
+		assertEquals("|" + t1.getId() + "|" + t2.getId() + "*|", t3.getLineage());
+		assertEquals(List.of(t1.getId(), t2.getId()), t3.getLineageIds());
+		assertTrue(t3.isDescendantOf(t2));
+		assertFalse(t3.isDescendantOf(t1));
+		assertFalse(snippet.isDescendantOf(t1));
+		assertTrue(snippet.isDescendantOf(t3));
+
+		extra.removeChild(t2);
+		assertEquals("|" + t1.getId() + "|" + t2.getId() + "|", t3.getLineage());
+		assertTrue(t3.isDescendantOf(t1));
+		assertTrue(snippet.isDescendantOf(t1));
+	}
+
+	@Test
+	public void lineageFilledInOnPersist() throws InterruptedException {
+		makeNestedFolders();
+		Folder unsaved = TestFactory.createAFolder("unsaved", anyuser);
+		unsaved.setId(null);
+		t3.addChild(unsaved, anyuser);
+		Folder child = TestFactory.createAFolder("child", anyuser);
+		unsaved.addChild(child, anyuser);
+		assertNull(child.getLineage());
+
+		// parents are saved first
+		unsaved.setId(1L);
+		unsaved.updateLineageOnPersist();
+		child.updateLineageOnPersist();
+		assertEquals(sd.getLineage() + "1|", child.getLineage());
+		assertTrue(child.isDescendantOf(t1));
+	}
+
+	@Test
+	public void parentHierarchyFromLineageUsesFolderLoader() throws InterruptedException {
+		makeNestedFolders();
+		anyuser.setRootFolder(t1);
+		Map<Long, Folder> folders = new HashMap<>();
+		for (Folder folder : List.of(t1, t2, t3)) {
+			folders.put(folder.getId(), folder);
+		}
+		List<Collection<Long>> loaded = new ArrayList<>();
+		try (AncestorCache cache = AncestorCache.open(ids -> {
+			loaded.add(new ArrayList<>(ids));
+			return folders;
+		})) {
+			RSPath sdPath = sd.getParentHierarchyForUser(anyuser);
+			RSPath snippetPath = snippet.getParentHierarchyForUser(anyuser);
+			assertEquals(sd.getShortestPathToParent(t1).size(), sdPath.size());
+			assertEquals(t1, sdPath.getFirstElement().get());
+			assertEquals(t3, sdPath.getImmediateParentOf(sd).get());
+			assertEquals(t3, snippetPath.getImmediateParentOf(snippet).get());
+		}
+		// one load for both paths
+		assertEquals(List.of(List.of(t1.getId(), t2.getId(), t3.getId())), loaded);
+	}
+
 	/**
 	 * Makes a 3-deep nested folder structure with a record inside t1 /t2/t3/rtd
 	 */
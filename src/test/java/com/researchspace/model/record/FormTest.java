@@ -285,6 +285,29 @@ public class FormTest {
 		assertEquals(ft2, it2.next());
 	}
 
+	@Test
+	public void fieldFormsStayOrderedAfterColumnIndexChanges() {
+		setUpFormWith3Fields();
+		List<FieldForm> fieldForms = form.getFieldForms();
+		fieldForms.get(0).setColumnIndex(10);
+		assertEquals(toList(3L, 1L, 2L), ids(form.getFieldForms()));
+
+		FieldForm ft4 = createAnyFieldForm(4L);
+		ft4.setColumnIndex(3);
+		form.addFieldForm(ft4);
+		assertEquals(toList(3L, 4L, 1L, 2L), ids(form.getFieldForms()));
+		form.removeFieldForm(ft4);
+		assertEquals(toList(3L, 1L, 2L), ids(form.getFieldForms()));
+	}
+
+	private List<Long> ids(List<FieldForm> fieldForms) {
+		List<Long> ids = new ArrayList<>();
+		for (FieldForm ff : fieldForms) {
+			ids.add(ff.getId());
+		}
+		return ids;
+	}
+
 	@Test
 	public void testReorderRequiresSameNumberOfFields() {
 		setUpFormWith3Fields();
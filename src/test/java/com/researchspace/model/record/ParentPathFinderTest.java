@@ -0,0 +1,89 @@
+package com.researchspace.model.record;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.researchspace.model.User;
+
+public class ParentPathFinderTest {
+
+	private User anyuser = TestFactory.createAnyUser("any");
+	private Folder root;
+	private List<BaseRecord> records;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		root = TestFactory.createAFolder("root", anyuser);
+		anyuser.setRootFolder(root);
+		records = new ArrayList<>();
+		// 3 levels of subfolders, with documents in each leaf folder
+		for (int i = 0; i < 3; i++) {
+			Folder a = TestFactory.createAFolder("a" + i, anyuser);
+			root.addChild(a, anyuser);
+			for (int j = 0; j < 3; j++) {
+				Folder b = TestFactory.createAFolder("b" + i + j, anyuser);
+				a.addChild(b, anyuser);
+				for (int k = 0; k < 3; k++) {
+					StructuredDocument sd = TestFactory.createAnySD();
+					sd.setId((long) records.size());
+					b.addChild(sd, anyuser);
+					records.add(sd);
+				}
+				records.add(b);
+			}
+		}
+		records.add(root);
+	}
+
+	@Test
+	public void batchPathsMatchSingleRecordPaths() {
+		// a shortcut, so some records have 2 paths of different lengths
+		Folder shortcut = (Folder) records.get(3);
+		root.addChild(shortcut, anyuser);
+
+		Map<BaseRecord, RSPath> paths = BaseRecord.getParentHierarchiesForUser(records, anyuser);
+		assertEquals(records, new ArrayList<>(paths.keySet()));
+		for (BaseRecord record : records) {
+			RSPath expected = record.getParentHierarchyForUser(anyuser);
+			RSPath actual = paths.get(record);
+			assertEquals(expected.size(), actual.size(), record.getName());
+			assertEquals(root, actual.getFirstElement().get());
+			assertEquals(record, actual.getLastElement().get());
+		}
+		// root, shortcut, document
+		assertEquals(3, paths.get(records.get(0)).size());
+	}
+
+	@Test
+	public void recordsOutsideUsersTreeHaveEmptyPaths() {
+		StructuredDocument orphan = TestFactory.createAnySD();
+		orphan.setId(-1L);
+		Folder other = TestFactory.createAFolder("other", anyuser);
+		other.addChild(orphan, anyuser);
+
+		Map<BaseRecord, RSPath> paths = BaseRecord.getParentHierarchiesForUser(List.of(orphan, other, records.get(0)),
+				anyuser);
+		assertTrue(paths.get(orphan).isEmpty());
+		assertTrue(paths.get(other).isEmpty());
+		assertEquals(4, paths.get(records.get(0)).size());
+	}
+
+	@Test
+	public void finderIsReusable() {
+		ParentPathFinder finder = new ParentPathFinder();
+		for (int i = 0; i < 2; i++) {
+			RSPath path = finder.getShortestPathToParent(records.get(0), r -> r.equals(root),
+					(current, parent) -> false);
+			assertEquals(4, path.size());
+			assertEquals(4, finder.getParentHierarchiesForUser(records, anyuser).get(records.get(0)).size());
+		}
+	}
+
+}
@@ -8,6 +8,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -15,7 +16,9 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
@@ -29,12 +32,16 @@ import org.junit.jupiter.params.provider.EnumSource;
 
 import com.researchspace.Constants;
 import com.researchspace.core.testutil.ModelTestUtils;
+import com.researchspace.core.util.SecureStringUtils;
 import com.researchspace.model.Group;
 import com.researchspace.model.User;
 import com.researchspace.model.Version;
 import com.researchspace.model.core.GlobalIdentifier;
 import com.researchspace.model.core.RecordType;
 import com.researchspace.model.field.Field;
+import com.researchspace.model.field.FieldType;
+import com.researchspace.model.field.TextField;
+import com.researchspace.model.field.TextFieldForm;
 import com.researchspace.model.permissions.PermissionType;
 import com.researchspace.model.permissions.RecordSharingACL;
 
@@ -66,6 +73,106 @@ public class StructuredDocumentTest {
 		assertTrue(StringUtils.isEmpty(sd.getDeltaStr()));
 	}
 
+	@Test
+	public void contentHashForSigningSameAsHashOfConcatenatedContent() {
+		sd = TestFactory.createAnySD();
+		String[] contents = { "", "<p>caf\u00e9 \u00b5g</p>", StringUtils.repeat("<td>\u20ac1</td>", 5000),
+				// surrogate pair split across fields, and unpaired surrogates
+				"ends with \ud83d", "\ude00 starts", "\udc00 lone \ud800" };
+		for (String content : contents) {
+			TextField field = new TextField(TestFactory.createTextFieldForm());
+			field.setFieldData(content);
+			sd.addField(field);
+			assertEquals(SecureStringUtils.getHashForSigning(sd.getConcatenatedFieldContent()).toHex(),
+					sd.getRecordContentHashForSigning().toHex());
+		}
+	}
+
+	@Test
+	public void fieldsFoundByNameAndTypeAfterChanges() {
+		sd = TestFactory.createAnySD();
+		Field first = sd.getFields().get(0);
+		assertSame(first, sd.getField(first.getName()));
+		assertNull(sd.getField("other"));
+
+		TextFieldForm otherForm = TestFactory.createTextFieldForm();
+		otherForm.setName("other");
+		TextField other = new TextField(otherForm);
+		sd.addField(other);
+		assertSame(other, sd.getField("other"));
+		assertEquals(sd.getTextFields(), sd.getFieldsOfType(FieldType.TEXT));
+		assertSame(other, sd.getFieldsOfType(FieldType.TEXT).get(1));
+
+		otherForm.setName("renamed");
+		assertNull(sd.getField("other"));
+		assertSame(other, sd.getField("renamed"));
+
+		sd.removeField(other);
+		assertNull(sd.getField("renamed"));
+		assertEquals(1, sd.getFieldsOfType(FieldType.TEXT).size());
+		assertTrue(sd.getFieldsOfType(FieldType.DATE).isEmpty());
+	}
+
+	@Test
+	public void fieldIndexUpdatedWhenFieldReplaced() {
+		sd = TestFactory.createAnySD();
+		Field text = sd.getFields().get(0);
+		assertEquals(1, sd.getFieldsOfType(FieldType.TEXT).size());
+
+		// same number of fields, so only noticed through invalidation
+		Field date = TestFactory.createAnyField();
+		sd.removeField(text);
+		sd.addField(date);
+		assertTrue(sd.getFieldsOfType(FieldType.TEXT).isEmpty());
+		assertSame(date, sd.getFieldsOfType(FieldType.DATE).get(0));
+		assertSame(date, sd.getField(date.getName()));
+		assertNull(sd.getField(text.getName()));
+	}
+
+	@Test
+	public void updateFieldsValidatesAllBeforeChangingAny() {
+		sd = TestFactory.createAnySD();
+		Field text = sd.getFields().get(0);
+		Field date = TestFactory.createAnyField();
+		sd.addField(date);
+		sd.clearDelta();
+
+		Map<Field, String> updates = new LinkedHashMap<>();
+		updates.put(text, "new text");
+		updates.put(date, "not a date");
+		assertThrows(IllegalArgumentException.class, () -> sd.updateFields(updates));
+		assertEquals("x", text.getFieldData());
+		assertFalse(sd.hasAuditableDeltas());
+
+		updates.put(date, "1999-12-31");
+		sd.updateFields(updates);
+		assertEquals("new text", text.getFieldData());
+		assertEquals("1999-12-31", date.getFieldData());
+		assertEquals(DeltaType.FIELD_CHG + "-" + text.getName() + "," + DeltaType.FIELD_CHG + "-" + date.getName(),
+				sd.getDeltaStr());
+		assertTrue(sd.isMarkedForVersionIncrement());
+
+		Field notInDoc = TestFactory.createAnyField();
+		assertThrows(IllegalArgumentException.class, () -> sd.updateFields(Map.of(notInDoc, "1999-12-31")));
+	}
+
+	@Test
+	public void updateFieldsCompactsDeltaForManyFields() {
+		sd = TestFactory.createAnySD();
+		Map<Field, String> updates = new LinkedHashMap<>();
+		for (int i = 0; i < 200; i++) {
+			TextFieldForm form = TestFactory.createTextFieldForm();
+			form.setName("a long field name " + i);
+			TextField field = new TextField(form);
+			sd.addField(field);
+			updates.put(field, "text " + i);
+		}
+		sd.clearDelta();
+		sd.updateFields(updates);
+		assertEquals(DeltaType.FIELD_CHG.toString(), sd.getDeltaStr());
+		assertEquals("text 199", sd.getField("a long field name 199").getFieldData());
+	}
+
 	@Test
 	public void testInititalProperties() {
 		sd = new StructuredDocument();
@@ -8,12 +8,18 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import javax.measure.Quantity;
+import javax.measure.quantity.Dimensionless;
 import javax.measure.quantity.Mass;
+import javax.measure.quantity.Volume;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -239,6 +245,80 @@ public class QuantityUtilsTest {
 		assertEquals("0.2 mm³", result.toPlainString());
 	}
 	
+	@Test
+	@DisplayName("Sums and comparisons in exact arithmetic match javax.measure results")
+	public void exactArithmeticMatchesQuantities() {
+		Random random = new Random(42);
+		RSUnitDef[][] families = { { RSUnitDef.PICO_GRAM, RSUnitDef.NANO_GRAM, RSUnitDef.MICRO_GRAM,
+				RSUnitDef.MILLI_GRAM, RSUnitDef.GRAM, RSUnitDef.KILO },
+				{ RSUnitDef.PICO_LITRE, RSUnitDef.MICRO_LITRE, RSUnitDef.LITRE, RSUnitDef.CUBIC_MILLIMETRE,
+						RSUnitDef.CUBIC_CENTIMETRE, RSUnitDef.CUBIC_DECIMETRE, RSUnitDef.CUBIC_METRE },
+				{ RSUnitDef.DIMENSIONLESS } };
+		for (int i = 0; i < 2000; i++) {
+			RSUnitDef[] family = families[random.nextInt(families.length)];
+			List<Quantifiable> quantities = new ArrayList<>();
+			for (int j = 0, n = 1 + random.nextInt(4); j < n; j++) {
+				BigDecimal value = BigDecimal.valueOf(random.nextInt(4_000_000) - 1_000_000, random.nextInt(7));
+				quantities.add(new SomeQuantifiableThing(value, family[random.nextInt(family.length)]));
+			}
+			Quantity<?> expectedSum = qUtils.convertToMoreUsefulUnit(
+					qUtils.getForQuantifiable(quantities, qUtils.new QuantitySummingVisitor()));
+			assertEquals(QuantityInfo.of(BigDecimal.valueOf(expectedSum.getValue().doubleValue()),
+					RSUnitDef.getUnitDefByUnit(expectedSum.getUnit()).get()), qUtils.sum(quantities),
+					quantities.toString());
+
+			Quantifiable a = quantities.get(0);
+			Quantifiable b = quantities.get(quantities.size() - 1);
+			RSUnitDef def = RSUnitDef.getUnitById(a.getUnitId());
+			int expected = def.isMass() ? compareAsQuantities(a, b, Mass.class)
+					: def.isVolume() ? compareAsQuantities(a, b, Volume.class)
+							: compareAsQuantities(a, b, Dimensionless.class);
+			assertEquals(Integer.signum(expected), Integer.signum(qUtils.getComparatorFor(a).compare(a, b)),
+					quantities.toString());
+		}
+	}
+
+	@Test
+	@DisplayName("Bulk sums by category match sums of each category")
+	public void sumByCategoryMatchesSum() {
+		Random random = new Random(7);
+		RSUnitDef[] units = { RSUnitDef.MICRO_GRAM, RSUnitDef.MILLI_GRAM, RSUnitDef.GRAM, RSUnitDef.KILO,
+				RSUnitDef.MILLI_LITRE, RSUnitDef.LITRE, RSUnitDef.CUBIC_CENTIMETRE, RSUnitDef.DIMENSIONLESS };
+		QuantityColumn column = new QuantityColumn();
+		Map<String, List<Quantifiable>> byCategory = new HashMap<>();
+		for (int i = 0; i < 50_000; i++) {
+			RSUnitDef unit = units[random.nextInt(units.length)];
+			BigDecimal value = BigDecimal.valueOf(random.nextInt(100_000), random.nextInt(4));
+			if (i == 10) {
+				value = new BigDecimal("123456789012345678901234.5");
+			}
+			column.add(unit.getId(), value);
+			byCategory.computeIfAbsent(unit.getCategory(), c -> new ArrayList<>())
+					.add(new SomeQuantifiableThing(value, unit));
+		}
+		Map<String, QuantityInfo> sequential = qUtils.sumByCategory(column, false);
+		Map<String, QuantityInfo> parallel = qUtils.sumByCategory(column, true);
+		assertEquals(byCategory.keySet(), sequential.keySet());
+		for (Map.Entry<String, List<Quantifiable>> category : byCategory.entrySet()) {
+			QuantityInfo expected = qUtils.sum(category.getValue());
+			assertEquals(expected, sequential.get(category.getKey()), category.getKey());
+			assertEquals(expected, parallel.get(category.getKey()), category.getKey());
+		}
+
+		Map<String, QuantityInfo> fromArrays = qUtils.sumByCategory(
+				new int[] { RSUnitDef.GRAM.getId(), RSUnitDef.MILLI_GRAM.getId() },
+				new BigDecimal[] { BigDecimal.ONE, BigDecimal.valueOf(500) });
+		assertEquals("1.5 g", fromArrays.get(RSUnits.MASS_CATEGORY).toPlainString());
+		assertTrue(qUtils.sumByCategory(new QuantityColumn(), true).isEmpty());
+		assertThrows(IllegalArgumentException.class, () -> qUtils.sumByCategory(
+				new int[] { RSUnitDef.CELSIUS.getId() }, new BigDecimal[] { BigDecimal.ONE }));
+	}
+
+	private <Q extends Quantity<Q>> int compareAsQuantities(Quantifiable a, Quantifiable b, Class<Q> clazz) {
+		return BigDecimal.valueOf(qUtils.getQuantityFor(a, clazz).toSystemUnit().getValue().doubleValue())
+				.compareTo(BigDecimal.valueOf(qUtils.getQuantityFor(b, clazz).toSystemUnit().getValue().doubleValue()));
+	}
+
 	@Test
 	public void comparatorTest() {
 		// pure numeric ordering is 1,3,2
@@ -335,4 +415,30 @@ public class QuantityUtilsTest {
 		assertEquals("Cannot parse quantity string: Failed to parse number-literal 'asdf'.", iae.getMessage());
 	}
 
+	@Test
+	@DisplayName("Fast parsing of quantity strings gives the same results and errors as the full parser")
+	public void parseQuantityInfoSameAsFullParser() {
+		List<String> quantityStrings = toList("2kg", "5.5 g", "0.21 μg", "0.21 µg", "1000mg", "16.3pl", "4m³",
+				"2.15cm³", "15", "0", "0.000", "007 ml", "1.5", "123456789012345 g", "1234567890.123456 g",
+				"2 tonne", "2tonne", "2 mol", "asdf", "2  g", "2 g ", " 2 g", "2.g", ".5 g", "-3 g", "2 g/l",
+				"5%", "1e3 g", "2 k g", "3 m^3");
+		for (int repeat = 0; repeat < 2; repeat++) {
+			for (String quantityString : quantityStrings) {
+				QuantityInfo expected = null;
+				String expectedError = null;
+				try {
+					expected = QuantityUtils.parseQuantityInfoFully(quantityString);
+				} catch (IllegalArgumentException e) {
+					expectedError = e.getMessage();
+				}
+				try {
+					assertEquals(expected, QuantityUtils.parseQuantityInfo(quantityString), quantityString);
+					assertNull(expectedError, quantityString);
+				} catch (IllegalArgumentException e) {
+					assertEquals(expectedError, e.getMessage(), quantityString);
+				}
+			}
+		}
+	}
+
 }